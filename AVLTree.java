@@ -2,188 +2,371 @@
 // AVLTree class
 /**
  * Represents an AVL Tree data structure for managing songs based on a specific category.
+ * Songs are stored by their IDs and compared by their sort keys in the song store,
+ * 0 stands for no song.
  * This class supports efficient operations like insertion, deletion, and searching by maintaining a balanced binary tree.
  * It is optimized for operations that are dependent on the properties of songs, such as comparing by category scores.
  * The tree keeps track of the maximum and minimum songs based on the category score.
+ * Nodes are not objects but indexes into parallel primitive arrays holding the song, the
+ * children, the parent and the height of every node. Index 0 is the null node. Deleted
+ * nodes are kept in a free list and reused, so once the arrays have grown large enough
+ * inserting and deleting songs does not allocate.
+ * A tree can be given a handle slot in the song store, where it records the node of every
+ * song it holds. Membership is then a field check and deletion starts at the node itself.
+ * Trees sharing a slot must never hold the same song at the same time.
+ * By default songs with equal sort keys are treated as the same song. A tree can instead
+ * order them by ID, the smaller ID being the greater song, so that it holds every song.
  * @author Yusuf Anil Yazici
  */
-import java.util.ArrayList;
+import java.util.Arrays;
 
 public class AVLTree {
-    private AVLNode root; // Root of the AVL Tree.
+    private static final int NIL = 0; // Index of the null node.
+    private static final int INITIAL_CAPACITY = 4; // Node slots allocated on the first insert.
+    public static final int NO_HANDLES = -1; // Handle slot of trees that do not record node handles.
+
+    private int[] songs; // Song stored in each node.
+    private int[] left; // Left child of each node, also links the free list.
+    private int[] right; // Right child of each node.
+    private int[] parent; // Parent of each node.
+    private byte[] heights; // Height of each node used for balancing, 0 for the null node.
+    private int root = NIL; // Root of the AVL Tree.
+    private int usedSlots = 0; // Number of node slots handed out so far.
+    private int freeList = NIL; // First node of the list of deleted nodes.
+
+    private final SongStore store; // Store used for comparing songs.
     private final int category; // Category used for comparing songs.
+    private final int handleSlot; // Slot of the node handles in the store, NO_HANDLES if not recorded.
+    private final boolean tieBreakById; // Whether songs with equal sort keys are ordered by ID.
     public int size = 0; // Number of nodes (songs) in the tree.
-    private Song maxSong = null; // Tracks the song with maximum score in the category.
-    private Song minSong = null; // Tracks the song with minimum score in the category.
+    private int maxSong = 0; // Tracks the song with maximum score in the category.
+    private int minSong = 0; // Tracks the song with minimum score in the category.
 
-    // Constructor for initializing the AVL Tree with a specific category.
-    public AVLTree(int category) {
+    // Constructor for initializing the AVL Tree with a specific category. The
+    // node arrays are allocated on the first insert.
+    public AVLTree(SongStore store, int category) {
+        this(store, category, NO_HANDLES);
+    }
+
+    // Constructor for initializing the AVL Tree with a specific category that
+    // records the nodes of its songs in the given handle slot of the store.
+    public AVLTree(SongStore store, int category, int handleSlot) {
+        this(store, category, handleSlot, false);
+    }
+
+    // Constructor for initializing the AVL Tree with a specific category that
+    // records node handles in the given slot and, if tieBreakById is set, keeps
+    // songs with equal sort keys apart by their IDs.
+    public AVLTree(SongStore store, int category, int handleSlot, boolean tieBreakById) {
+        this.store = store;
         this.category = category;
+        this.handleSlot = handleSlot;
+        this.tieBreakById = tieBreakById;
         this.size = 0;
     }
 
     // Getter methods.
-    public Song getRoot() {
-        if (root == null) {
-            return null;
+    public int getRoot() {
+        if (root == NIL) {
+            return 0;
+        }
+        return songs[root];
+    }
+
+    // Get the sort key of a song in the category of the tree
+    private long key(int song) {
+        return store.getKey(song, category);
+    }
+
+    // Compares a song with the given sort key to another song of the tree. Equal
+    // keys only compare by ID if the tree breaks ties by ID.
+    private int compare(int song, long songKey, int otherSong) {
+        long otherKey = key(otherSong);
+        if (songKey != otherKey) {
+            return songKey < otherKey ? -1 : 1;
+        }
+        if (!tieBreakById || song == otherSong) {
+            return 0;
         }
-        return root.song;
+        return song < otherSong ? 1 : -1;
     }
 
     // Get height of the node
-    private int height(AVLNode node) {
-        return (node == null) ? 0 : node.height;
+    private int height(int node) {
+        return heights[node];
     }
 
-    public Song getMaxSong() {
+    public int getMaxSong() {
         return maxSong;
     }
 
-    public Song getMinSong() {
+    public int getMinSong() {
         return minSong;
     }
 
-    // Public method to insert a song into the tree.
-    public void insert(Song song) {
-        root = insert(root, song, null);
-        this.size++;
-        if (root != null) {
-            root.parent = null;
+    // Records the node holding a song if the tree keeps handles.
+    private void setHandle(int song, int node) {
+        if (handleSlot != NO_HANDLES) {
+            store.setNodeHandle(song, handleSlot, node);
         }
+    }
 
-        // Update Max and Min song values.
-        if (maxSong == null || song.compare(maxSong, category) > 0) {
-            maxSong = song;
+    // Returns the node holding a song, NIL if the song is not in the tree. A
+    // handle is only trusted if its node is in use and holds the song, so
+    // handles left behind by clear() or by another tree sharing the slot are
+    // ignored.
+    private int nodeOf(int song) {
+        if (handleSlot == NO_HANDLES) {
+            return findNode(song);
         }
-        if (minSong == null || song.compare(minSong, category) < 0) {
-            minSong = song;
+        int node = store.getNodeHandle(song, handleSlot);
+        if (node != NIL && node <= usedSlots && songs[node] == song) {
+            return node;
+        }
+        return NIL;
+    }
+
+    // Takes a node from the free list, or a new slot if the list is empty,
+    // growing the node arrays when they are full.
+    private int newNode(int song, int parentNode) {
+        int node;
+        if (freeList != NIL) {
+            node = freeList;
+            freeList = left[node];
+        } else {
+            if (songs == null) {
+                songs = new int[INITIAL_CAPACITY];
+                left = new int[INITIAL_CAPACITY];
+                right = new int[INITIAL_CAPACITY];
+                parent = new int[INITIAL_CAPACITY];
+                heights = new byte[INITIAL_CAPACITY];
+            } else if (usedSlots + 1 == songs.length) {
+                int capacity = 2 * songs.length;
+                songs = Arrays.copyOf(songs, capacity);
+                left = Arrays.copyOf(left, capacity);
+                right = Arrays.copyOf(right, capacity);
+                parent = Arrays.copyOf(parent, capacity);
+                heights = Arrays.copyOf(heights, capacity);
+            }
+            node = ++usedSlots;
         }
+        songs[node] = song;
+        left[node] = NIL;
+        right[node] = NIL;
+        parent[node] = parentNode;
+        heights[node] = 1;
+        setHandle(song, node);
+        return node;
+    }
+
+    // Puts a deleted node on the free list.
+    private void freeNode(int node) {
+        songs[node] = 0;
+        left[node] = freeList;
+        freeList = node;
     }
 
-    // Internal method to insert a song into the tree.
-    private AVLNode insert(AVLNode node, Song song, AVLNode parent) {
-        if (node == null) {
-            AVLNode newNode = new AVLNode(song);
-            newNode.parent = parent;
-            return newNode;
+    // Public method to insert a song into the tree. Walks down to the insertion
+    // point, then rebalances on the way back up through the parent pointers.
+    public void insert(int song) {
+        long songKey = key(song);
+        int parentNode = NIL;
+        int node = root;
+        boolean goLeft = false;
+        while (node != NIL) {
+            int order = compare(song, songKey, songs[node]);
+            if (order < 0) {
+                goLeft = true;
+            } else if (order > 0) {
+                goLeft = false;
+            } else {
+                return; // The song is already in the tree.
+            }
+            parentNode = node;
+            node = goLeft ? left[node] : right[node];
         }
 
-        if (song.compare(node.song, category) < 0) {
-            node.left = insert(node.left, song, node);
-        } else if (song.compare(node.song, category) > 0) {
-            node.right = insert(node.right, song, node);
+        int newNode = newNode(song, parentNode);
+        if (parentNode == NIL) {
+            root = newNode;
+        } else if (goLeft) {
+            left[parentNode] = newNode;
         } else {
-            return node;
+            right[parentNode] = newNode;
         }
+        size++;
+        rebalanceUpwards(parentNode);
 
-        updateHeight(node);
-        return balance(node);
+        // Update Max and Min song values.
+        if (maxSong == 0 || compare(song, songKey, maxSong) > 0) {
+            maxSong = song;
+        }
+        if (minSong == 0 || compare(song, songKey, minSong) < 0) {
+            minSong = song;
+        }
     }
 
-    // Clears the AVL Tree.
+    // Clears the AVL Tree, keeping the node arrays for reuse.
     public void clear() {
-        root = null;
+        root = NIL;
+        usedSlots = 0;
+        freeList = NIL;
         this.size = 0;
+        maxSong = 0;
+        minSong = 0;
     }
 
-    public void delete(Song song) {
-
-        root = delete(root, song);
-        this.size--;
-        if (root != null) {
-            root.parent = null; // Ensure the root's parent is null
+    // Replaces the contents of the tree with the songs in [from, to) of an array
+    // sorted in ascending order of the tree, building a perfectly balanced tree
+    // in linear time. Of songs that compare equal only the first one is kept,
+    // as insert() would do.
+    public void buildFromSorted(int[] sortedSongs, int from, int to) {
+        clear();
+        int count = to - from;
+        if (songs == null || songs.length < count + 1) {
+            int capacity = Math.max(INITIAL_CAPACITY, count + 1);
+            songs = new int[capacity];
+            left = new int[capacity];
+            right = new int[capacity];
+            parent = new int[capacity];
+            heights = new byte[capacity];
         }
 
-        if (root == null) {
-            this.size = 0;
-        }
-        // If the deleted song was the max or min, find the new max or min
-        if (song.equals(maxSong)) {
-            maxSong = (root != null) ? findMax(root).song : null;
+        // Node i holds the i-th distinct song in order.
+        int nodeCount = 0;
+        for (int i = from; i < to; i++) {
+            int song = sortedSongs[i];
+            if (nodeCount == 0 || compare(song, key(song), songs[nodeCount]) != 0) {
+                songs[++nodeCount] = song;
+                setHandle(song, nodeCount);
+            }
         }
-        if (song.equals(minSong)) {
-            minSong = (root != null) ? findMin(root).song : null;
+        if (nodeCount == 0) {
+            return;
         }
 
+        usedSlots = nodeCount;
+        size = nodeCount;
+        root = buildBalanced(1, nodeCount, NIL);
+        minSong = songs[1];
+        maxSong = songs[nodeCount];
     }
 
-    // Internal method to delete a song from the tree.
-    private AVLNode delete(AVLNode node, Song song) {
-        if (node == null) {
-            return null;
+    // Links the nodes in [from, to] into a balanced subtree under the given
+    // parent and returns its root, the middle node.
+    private int buildBalanced(int from, int to, int parentNode) {
+        if (from > to) {
+            return NIL;
         }
+        int node = (from + to) >>> 1;
+        parent[node] = parentNode;
+        left[node] = buildBalanced(from, node - 1, node);
+        right[node] = buildBalanced(node + 1, to, node);
+        updateHeight(node);
+        return node;
+    }
 
-        if (song.compare(node.song, category) < 0) {
-            node.left = delete(node.left, song);
-        } else if (song.compare(node.song, category) > 0) {
-            node.right = delete(node.right, song);
-        } else {
-            // Node with only one child or no child
-            if ((node.left == null) || (node.right == null)) {
-                AVLNode temp = (node.left == null) ? node.right : node.left;
-
-                // No child case
-                if (temp == null) {
-                    temp = node;
-                    node = null;
-                } else {
-                    // One child case
-                    temp.parent = node.parent; // Set parent
-                    node = temp;
-                }
-            } else {
-                // Node with two children: Get the inorder successor (smallest in the right
-                // subtree)
-                AVLNode temp = minValueNode(node.right);
+    // Deletes a song from the tree if it is present.
+    public void delete(int song) {
+        int node = nodeOf(song);
+        if (node == NIL) {
+            return;
+        }
+        int deletedSong = songs[node];
+        setHandle(deletedSong, NIL);
+
+        // Node with two children: copy the inorder successor (smallest in the right
+        // subtree) to this node and unlink the successor instead.
+        if (left[node] != NIL && right[node] != NIL) {
+            int successor = findMin(right[node]);
+            songs[node] = songs[successor];
+            setHandle(songs[node], node);
+            node = successor;
+        }
 
-                // Copy the inorder successor's data to this node and update parent
-                node.song = temp.song;
-                node.right = delete(node.right, temp.song); // Delete the inorder successor
-            }
+        // The node to unlink has at most one child.
+        int child = (left[node] == NIL) ? right[node] : left[node];
+        int parentNode = parent[node];
+        if (child != NIL) {
+            parent[child] = parentNode;
         }
+        replaceChild(parentNode, node, child);
+        freeNode(node);
+        size--;
+        rebalanceUpwards(parentNode);
 
-        // If the tree had only one node then return
-        if (node == null) {
-            return node;
+        // If the deleted song was the max or min, find the new max or min
+        if (deletedSong == maxSong) {
+            maxSong = (root != NIL) ? songs[findMax(root)] : 0;
         }
-        node = balance(node);
-        // Update height of the current node
-        if (node != null) {
-            updateParentReferences(node.left, node);
-            updateParentReferences(node.right, node);
+        if (deletedSong == minSong) {
+            minSong = (root != NIL) ? songs[findMin(root)] : 0;
         }
+    }
 
-        return node;
+    // Finds the node holding a song that compares equal to the given song, NIL
+    // if there is none.
+    private int findNode(int song) {
+        long songKey = key(song);
+        int node = root;
+        while (node != NIL) {
+            int order = compare(song, songKey, songs[node]);
+            if (order < 0) {
+                node = left[node];
+            } else if (order > 0) {
+                node = right[node];
+            } else {
+                return node;
+            }
+        }
+        return NIL;
     }
 
-    // Method to update the height of a node
-    private void updateHeight(AVLNode node) {
-        node.height = 1 + Math.max(height(node.left), height(node.right));
+    // Updates heights and rotates unbalanced nodes from the given node up to the
+    // root. Stops early once a subtree keeps its height, as nothing above it
+    // changes then.
+    private void rebalanceUpwards(int node) {
+        while (node != NIL) {
+            int oldHeight = heights[node];
+            updateHeight(node);
+            node = balance(node);
+            if (heights[node] == oldHeight) {
+                return;
+            }
+            node = parent[node];
+        }
     }
 
-    // Method to get the node with minimum value (used in delete operation)
-    private AVLNode minValueNode(AVLNode node) {
-        AVLNode current = node;
-        while (current.left != null) {
-            current = current.left;
-            current.parent = node; // Update parent
+    // Points the parent's link to oldChild at newChild instead, or the root if
+    // there is no parent.
+    private void replaceChild(int parentNode, int oldChild, int newChild) {
+        if (parentNode == NIL) {
+            root = newChild;
+        } else if (left[parentNode] == oldChild) {
+            left[parentNode] = newChild;
+        } else {
+            right[parentNode] = newChild;
         }
-        return current;
     }
 
-    // Balance the node if it's unbalanced
-    private AVLNode balance(AVLNode node) {
+    // Method to update the height of a node
+    private void updateHeight(int node) {
+        heights[node] = (byte) (1 + Math.max(height(left[node]), height(right[node])));
+    }
+
+    // Balance the node if it's unbalanced and return the root of its subtree
+    private int balance(int node) {
         int balanceFactor = getBalanceFactor(node);
 
         if (balanceFactor > 1) {
-            if (getBalanceFactor(node.left) < 0) {
-                node.left = rotateLeft(node.left);
+            if (getBalanceFactor(left[node]) < 0) {
+                rotateLeft(left[node]);
             }
             return rotateRight(node);
         }
         if (balanceFactor < -1) {
-            if (getBalanceFactor(node.right) > 0) {
-                node.right = rotateRight(node.right);
+            if (getBalanceFactor(right[node]) > 0) {
+                rotateRight(right[node]);
             }
             return rotateLeft(node);
         }
@@ -192,117 +375,128 @@ public class AVLTree {
     }
 
     // Get Balance factor of node N
-    private int getBalanceFactor(AVLNode node) {
-        return (node == null) ? 0 : height(node.left) - height(node.right);
-    }
-
-    // Right rotate the subtree rooted with y
-    private void updateParentReferences(AVLNode child, AVLNode parent) {
-        if (child != null) {
-            child.parent = parent;
-        }
+    private int getBalanceFactor(int node) {
+        return (node == NIL) ? 0 : height(left[node]) - height(right[node]);
     }
 
-    private AVLNode rotateRight(AVLNode y) {
-        AVLNode x = y.left;
-        AVLNode T2 = x.right;
+    // Right rotate the subtree rooted with y and link it to y's parent
+    private int rotateRight(int y) {
+        int x = left[y];
+        int T2 = right[x];
+        int parentNode = parent[y];
 
         // Perform rotation
-        x.right = y;
-        y.left = T2;
+        right[x] = y;
+        left[y] = T2;
+
+        // Update parent references
+        parent[x] = parentNode;
+        parent[y] = x;
+        if (T2 != NIL) {
+            parent[T2] = y;
+        }
+        replaceChild(parentNode, y, x);
 
         // Update heights
         updateHeight(y);
         updateHeight(x);
 
-        // Update parent references
-        updateParentReferences(y, x);
-        updateParentReferences(T2, y);
-
         return x;
     }
 
-    private AVLNode rotateLeft(AVLNode x) {
-        AVLNode y = x.right;
-        AVLNode T2 = y.left;
+    // Left rotate the subtree rooted with x and link it to x's parent
+    private int rotateLeft(int x) {
+        int y = right[x];
+        int T2 = left[y];
+        int parentNode = parent[x];
 
         // Perform rotation
-        y.left = x;
-        x.right = T2;
+        left[y] = x;
+        right[x] = T2;
+
+        // Update parent references
+        parent[y] = parentNode;
+        parent[x] = y;
+        if (T2 != NIL) {
+            parent[T2] = x;
+        }
+        replaceChild(parentNode, x, y);
 
         // Update heights
         updateHeight(x);
         updateHeight(y);
 
-        // Update parent references
-        updateParentReferences(x, y);
-        updateParentReferences(T2, x);
-
         return y;
     }
 
     // Method to find the minimum valued song in the AVL tree.
-    public Song findMin() {
-        return findMin(root).song;
+    public int findMin() {
+        if (root == NIL) {
+            return 0;
+        }
+        return songs[findMin(root)];
     }
 
-    private AVLNode findMin(AVLNode node) {
-        AVLNode current = node;
-        while (current.left != null) {
-            current = current.left;
+    private int findMin(int node) {
+        int current = node;
+        while (left[current] != NIL) {
+            current = left[current];
         }
         return current;
     }
 
     // Method to find the maximum valued song in the AVL tree.
-    public Song findMax() {
-        if (root == null) {
-            return null;
+    public int findMax() {
+        if (root == NIL) {
+            return 0;
         }
-        return findMax(root).song;
+        return songs[findMax(root)];
     }
 
-    private AVLNode findMax(AVLNode node) {
-        if (node.right == null) {
-            return node;
+    private int findMax(int node) {
+        int current = node;
+        while (right[current] != NIL) {
+            current = right[current];
         }
-        return findMax(node.right);
+        return current;
     }
 
     // Utility method to get all the songs in the tree in sorted order.
-    public ArrayList<Song> getItems() {
-        ArrayList<Song> items = new ArrayList<>();
-        inOrderTraversal(root, items);
+    public int[] getItems() {
+        int[] items = new int[size];
+        inOrderTraversal(root, items, 0);
         return items;
     }
 
     // Helper method to perform in-order traversal
-    private void inOrderTraversal(AVLNode node, ArrayList<Song> items) {
-        if (node != null) {
-            inOrderTraversal(node.left, items); // Visit left subtree
-            items.add(node.song); // Visit node
-            inOrderTraversal(node.right, items); // Visit right subtree
+    private int inOrderTraversal(int node, int[] items, int count) {
+        if (node != NIL) {
+            count = inOrderTraversal(left[node], items, count); // Visit left subtree
+            items[count++] = songs[node]; // Visit node
+            count = inOrderTraversal(right[node], items, count); // Visit right subtree
         }
+        return count;
     }
 
-    // Checks if a particular song is present in the tree.
-    public boolean contains(Song target) {
-        return contains(root, target);
+    // Copies the IDs of all songs in the tree in descending order into the
+    // target and returns the number of IDs copied.
+    public int copySongIdsDescending(int[] target) {
+        return reverseOrderTraversal(root, target, 0);
     }
 
-    private boolean contains(AVLNode node, Song target) {
-        if (node == null) {
-            return false;
+    // Helper method to perform reverse in-order traversal
+    private int reverseOrderTraversal(int node, int[] target, int count) {
+        if (node != NIL) {
+            count = reverseOrderTraversal(right[node], target, count); // Visit right subtree
+            target[count++] = songs[node]; // Visit node
+            count = reverseOrderTraversal(left[node], target, count); // Visit left subtree
         }
+        return count;
+    }
 
-        int comparison = target.compare(node.song, category);
-        if (comparison < 0) {
-            return contains(node.left, target);
-        } else if (comparison > 0) {
-            return contains(node.right, target);
-        } else {
-            return true; // Found the target
-        }
+    // Checks if a particular song is present in the tree.
+    public boolean contains(int target) {
+        return nodeOf(target) != NIL;
     }
 
 }
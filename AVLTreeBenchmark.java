@@ -0,0 +1,431 @@
+// AVLTreeBenchmark class
+/**
+ * Compares the iterative AVLTree against RecursiveAVLTree, a copy of the recursive tree it
+ * replaced, on the same random workload.
+ * Both trees are filled with all songs of a random catalog, then the same sequence of mixed
+ * delete, insert and contains operations is run on each of them. The results of both trees
+ * are checked to be the same and the time of every round is printed. Use an even number of
+ * rounds so that each tree runs first equally often.
+ * Usage: java AVLTreeBenchmark [songs] [operations] [rounds] [seed]
+ */
+import java.util.Arrays;
+import java.util.Random;
+
+public class AVLTreeBenchmark {
+    private static final int DEFAULT_SONGS = 2_000_000; // Number of songs in the catalog.
+    private static final int DEFAULT_OPERATIONS = 6_000_000; // Number of operations in a round.
+    private static final int DEFAULT_ROUNDS = 4; // Number of timed rounds per tree.
+    private static final long DEFAULT_SEED = 250L; // Seed of the random workload.
+    private static final int CATEGORY = 1; // Category used for comparing songs.
+    private static final int MAX_SCORE = 100; // Scores are drawn from [0, MAX_SCORE].
+
+    public static void main(String[] args) {
+        int numberOfSongs = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_SONGS;
+        int operations = args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_OPERATIONS;
+        int rounds = args.length > 2 ? Integer.parseInt(args[2]) : DEFAULT_ROUNDS;
+        long seed = args.length > 3 ? Long.parseLong(args[3]) : DEFAULT_SEED;
+
+        SongStore store = createStore(numberOfSongs, seed);
+        int[] workload = createWorkload(numberOfSongs, operations, seed);
+
+        // The tree that runs first alternates every round, so JIT compilation and
+        // garbage collection warm-up do not favor either tree.
+        for (int round = 1; round <= rounds; round++) {
+            long recursiveResult;
+            long iterativeResult;
+            long recursiveTime;
+            long iterativeTime;
+            if (round % 2 == 1) {
+                long start = System.nanoTime();
+                recursiveResult = runRecursive(store, workload);
+                recursiveTime = System.nanoTime() - start;
+                start = System.nanoTime();
+                iterativeResult = runIterative(store, workload);
+                iterativeTime = System.nanoTime() - start;
+            } else {
+                long start = System.nanoTime();
+                iterativeResult = runIterative(store, workload);
+                iterativeTime = System.nanoTime() - start;
+                start = System.nanoTime();
+                recursiveResult = runRecursive(store, workload);
+                recursiveTime = System.nanoTime() - start;
+            }
+
+            if (recursiveResult != iterativeResult) {
+                throw new IllegalStateException("Trees gave different results in round " + round + ".");
+            }
+            System.out.println("round " + round + ": recursive " + recursiveTime / 1_000_000 + " ms, iterative "
+                    + iterativeTime / 1_000_000 + " ms");
+        }
+    }
+
+    // Creates a store of songs with random scores and distinct names.
+    private static SongStore createStore(int numberOfSongs, long seed) {
+        Random random = new Random(seed);
+        SongStore store = new SongStore(numberOfSongs);
+        for (int songId = 1; songId <= numberOfSongs; songId++) {
+            store.setSong(songId, songId, "song" + songId, random.nextInt(MAX_SCORE + 1),
+                    random.nextInt(MAX_SCORE + 1), random.nextInt(MAX_SCORE + 1), random.nextInt(MAX_SCORE + 1));
+        }
+        store.rankSongNames();
+        return store;
+    }
+
+    // Creates the songs the operations work on. Each song is deleted if it is in
+    // the tree and inserted otherwise, and every operation also checks a song.
+    private static int[] createWorkload(int numberOfSongs, int operations, long seed) {
+        Random random = new Random(seed + 1);
+        int[] workload = new int[2 * operations];
+        for (int i = 0; i < workload.length; i++) {
+            workload[i] = 1 + random.nextInt(numberOfSongs);
+        }
+        return workload;
+    }
+
+    // Runs the workload on the iterative tree and returns a checksum of its results.
+    private static long runIterative(SongStore store, int[] workload) {
+        AVLTree tree = new AVLTree(store, CATEGORY);
+        for (int songId = 1; songId <= store.getNumberOfSongs(); songId++) {
+            tree.insert(songId);
+        }
+
+        long checksum = 0;
+        for (int i = 0; i < workload.length; i += 2) {
+            int song = workload[i];
+            if (tree.contains(song)) {
+                tree.delete(song);
+            } else {
+                tree.insert(song);
+            }
+            if (tree.contains(workload[i + 1])) {
+                checksum += i;
+            }
+        }
+        return checksum * 31 + tree.size * 7 + tree.getMaxSong() + tree.getMinSong();
+    }
+
+    // Runs the workload on the recursive tree and returns a checksum of its results.
+    private static long runRecursive(SongStore store, int[] workload) {
+        RecursiveAVLTree tree = new RecursiveAVLTree(store, CATEGORY);
+        for (int songId = 1; songId <= store.getNumberOfSongs(); songId++) {
+            tree.insert(songId);
+        }
+
+        long checksum = 0;
+        for (int i = 0; i < workload.length; i += 2) {
+            int song = workload[i];
+            if (tree.contains(song)) {
+                tree.delete(song);
+            } else {
+                tree.insert(song);
+            }
+            if (tree.contains(workload[i + 1])) {
+                checksum += i;
+            }
+        }
+        return checksum * 31 + tree.size * 7 + tree.getMaxSong() + tree.getMinSong();
+    }
+
+    /**
+     * The recursive AVL tree that AVLTree replaced, kept as the baseline of the benchmark.
+     * Nodes are indexes into parallel primitive arrays as in AVLTree, but insert, delete and
+     * contains descend recursively and delete rewrites the parent references on every level.
+     */
+    private static class RecursiveAVLTree {
+        private static final int NIL = 0; // Index of the null node.
+        private static final int INITIAL_CAPACITY = 4; // Node slots allocated on the first insert.
+
+        private int[] songs; // Song stored in each node.
+        private int[] left; // Left child of each node, also links the free list.
+        private int[] right; // Right child of each node.
+        private int[] parent; // Parent of each node.
+        private byte[] heights; // Height of each node used for balancing, 0 for the null node.
+        private int root = NIL; // Root of the tree.
+        private int usedSlots = 0; // Number of node slots handed out so far.
+        private int freeList = NIL; // First node of the list of deleted nodes.
+
+        private final SongStore store; // Store used for comparing songs.
+        private final int category; // Category used for comparing songs.
+        int size = 0; // Number of nodes (songs) in the tree.
+        private int maxSong = 0; // Tracks the song with maximum score in the category.
+        private int minSong = 0; // Tracks the song with minimum score in the category.
+
+        RecursiveAVLTree(SongStore store, int category) {
+            this.store = store;
+            this.category = category;
+        }
+
+        int getMaxSong() {
+            return maxSong;
+        }
+
+        int getMinSong() {
+            return minSong;
+        }
+
+        // Get the sort key of a song in the category of the tree
+        private long key(int song) {
+            return store.getKey(song, category);
+        }
+
+        // Get height of the node
+        private int height(int node) {
+            return heights[node];
+        }
+
+        // Takes a node from the free list, or a new slot if the list is empty,
+        // growing the node arrays when they are full.
+        private int newNode(int song, int parentNode) {
+            int node;
+            if (freeList != NIL) {
+                node = freeList;
+                freeList = left[node];
+            } else {
+                if (songs == null) {
+                    songs = new int[INITIAL_CAPACITY];
+                    left = new int[INITIAL_CAPACITY];
+                    right = new int[INITIAL_CAPACITY];
+                    parent = new int[INITIAL_CAPACITY];
+                    heights = new byte[INITIAL_CAPACITY];
+                } else if (usedSlots + 1 == songs.length) {
+                    int capacity = 2 * songs.length;
+                    songs = Arrays.copyOf(songs, capacity);
+                    left = Arrays.copyOf(left, capacity);
+                    right = Arrays.copyOf(right, capacity);
+                    parent = Arrays.copyOf(parent, capacity);
+                    heights = Arrays.copyOf(heights, capacity);
+                }
+                node = ++usedSlots;
+            }
+            songs[node] = song;
+            left[node] = NIL;
+            right[node] = NIL;
+            parent[node] = parentNode;
+            heights[node] = 1;
+            return node;
+        }
+
+        // Puts a deleted node on the free list.
+        private void freeNode(int node) {
+            songs[node] = 0;
+            left[node] = freeList;
+            freeList = node;
+        }
+
+        void insert(int song) {
+            long songKey = key(song);
+            int sizeBefore = size;
+            root = insert(root, song, songKey, NIL);
+            if (size == sizeBefore) {
+                return; // The song is already in the tree.
+            }
+            parent[root] = NIL;
+
+            // Update Max and Min song values.
+            if (maxSong == 0 || songKey > key(maxSong)) {
+                maxSong = song;
+            }
+            if (minSong == 0 || songKey < key(minSong)) {
+                minSong = song;
+            }
+        }
+
+        private int insert(int node, int song, long songKey, int parentNode) {
+            if (node == NIL) {
+                size++;
+                return newNode(song, parentNode);
+            }
+
+            // The child is assigned through a local because the insert below may
+            // grow the node arrays.
+            long nodeKey = key(songs[node]);
+            if (songKey < nodeKey) {
+                int child = insert(left[node], song, songKey, node);
+                left[node] = child;
+            } else if (songKey > nodeKey) {
+                int child = insert(right[node], song, songKey, node);
+                right[node] = child;
+            } else {
+                return node;
+            }
+
+            updateHeight(node);
+            return balance(node);
+        }
+
+        void delete(int song) {
+            if (root == NIL) {
+                return;
+            }
+
+            root = delete(root, key(song));
+            parent[root] = NIL; // Ensure the root's parent is null
+
+            // If the deleted song was the max or min, find the new max or min
+            if (song == maxSong) {
+                maxSong = (root != NIL) ? songs[findMax(root)] : 0;
+            }
+            if (song == minSong) {
+                minSong = (root != NIL) ? songs[findMin(root)] : 0;
+            }
+        }
+
+        private int delete(int node, long songKey) {
+            if (node == NIL) {
+                return NIL;
+            }
+
+            long nodeKey = key(songs[node]);
+            if (songKey < nodeKey) {
+                left[node] = delete(left[node], songKey);
+            } else if (songKey > nodeKey) {
+                right[node] = delete(right[node], songKey);
+            } else {
+                // Node with only one child or no child
+                if ((left[node] == NIL) || (right[node] == NIL)) {
+                    int temp = (left[node] == NIL) ? right[node] : left[node];
+
+                    // One child case
+                    if (temp != NIL) {
+                        parent[temp] = parent[node]; // Set parent
+                    }
+                    freeNode(node);
+                    size--;
+                    return temp;
+                } else {
+                    // Node with two children: Get the inorder successor (smallest in the right
+                    // subtree)
+                    int temp = findMin(right[node]);
+
+                    // Copy the inorder successor's data to this node
+                    songs[node] = songs[temp];
+                    right[node] = delete(right[node], key(songs[temp])); // Delete the inorder successor
+                }
+            }
+
+            updateHeight(node);
+            node = balance(node);
+            updateParentReferences(left[node], node);
+            updateParentReferences(right[node], node);
+
+            return node;
+        }
+
+        // Method to update the height of a node
+        private void updateHeight(int node) {
+            heights[node] = (byte) (1 + Math.max(height(left[node]), height(right[node])));
+        }
+
+        // Balance the node if it's unbalanced
+        private int balance(int node) {
+            int balanceFactor = getBalanceFactor(node);
+
+            if (balanceFactor > 1) {
+                if (getBalanceFactor(left[node]) < 0) {
+                    left[node] = rotateLeft(left[node]);
+                }
+                return rotateRight(node);
+            }
+            if (balanceFactor < -1) {
+                if (getBalanceFactor(right[node]) > 0) {
+                    right[node] = rotateRight(right[node]);
+                }
+                return rotateLeft(node);
+            }
+
+            return node;
+        }
+
+        // Get Balance factor of node N
+        private int getBalanceFactor(int node) {
+            return (node == NIL) ? 0 : height(left[node]) - height(right[node]);
+        }
+
+        // Sets the parent of a child node if the child exists
+        private void updateParentReferences(int child, int parentNode) {
+            if (child != NIL) {
+                parent[child] = parentNode;
+            }
+        }
+
+        // Right rotate the subtree rooted with y
+        private int rotateRight(int y) {
+            int x = left[y];
+            int T2 = right[x];
+
+            // Perform rotation
+            right[x] = y;
+            left[y] = T2;
+
+            // Update heights
+            updateHeight(y);
+            updateHeight(x);
+
+            // Update parent references
+            parent[x] = parent[y];
+            updateParentReferences(y, x);
+            updateParentReferences(T2, y);
+
+            return x;
+        }
+
+        // Left rotate the subtree rooted with x
+        private int rotateLeft(int x) {
+            int y = right[x];
+            int T2 = left[y];
+
+            // Perform rotation
+            left[y] = x;
+            right[x] = T2;
+
+            // Update heights
+            updateHeight(x);
+            updateHeight(y);
+
+            // Update parent references
+            parent[y] = parent[x];
+            updateParentReferences(x, y);
+            updateParentReferences(T2, x);
+
+            return y;
+        }
+
+        private int findMin(int node) {
+            int current = node;
+            while (left[current] != NIL) {
+                current = left[current];
+            }
+            return current;
+        }
+
+        private int findMax(int node) {
+            int current = node;
+            while (right[current] != NIL) {
+                current = right[current];
+            }
+            return current;
+        }
+
+        boolean contains(int target) {
+            if (root == NIL) {
+                return false;
+            }
+            return contains(root, key(target));
+        }
+
+        private boolean contains(int node, long targetKey) {
+            if (node == NIL) {
+                return false;
+            }
+
+            long nodeKey = key(songs[node]);
+            if (targetKey < nodeKey) {
+                return contains(left[node], targetKey);
+            } else if (targetKey > nodeKey) {
+                return contains(right[node], targetKey);
+            } else {
+                return true; // Found the target
+            }
+        }
+    }
+}
@@ -0,0 +1,74 @@
+// BinaryEventReader class
+/**
+ * Reads the binary event log format of the test case file through memory-mapped windows.
+ * The log starts with a magic number, followed by the same integers as the text format up
+ * to the number of events: the four limits, the number of playlists and for every playlist
+ * its ID, its number of songs and the song IDs. Every event is then a fixed-width record of
+ * a one byte opcode, the song ID and the playlist ID. All integers are big-endian, counts
+ * and limits take 4 bytes and song and playlist IDs take 8 bytes.
+ */
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+public class BinaryEventReader extends EventSource {
+    public static final int MAGIC = ('E' << 24) | ('B' << 16) | ('L' << 8) | '2'; // First 4 bytes of a log.
+    public static final int RECORD_SIZE = 17; // Size of an event record in bytes.
+    private static final long WINDOW_SIZE = 64L << 20; // Size of a mapped window in bytes.
+
+    private final FileChannel channel; // Channel of the event log.
+    private final long fileSize; // Size of the event log in bytes.
+    private MappedByteBuffer window; // Currently mapped part of the file.
+    private long windowStart; // Position in the file of the start of the window.
+
+    // Constructor for reading an event log, skipping its magic number.
+    public BinaryEventReader(FileChannel channel) throws IOException {
+        this.channel = channel;
+        this.fileSize = channel.size();
+        map(0);
+        if (readInt() != MAGIC) {
+            throw new IOException("Not a binary event log.");
+        }
+    }
+
+    // Maps a window of the file starting at the given position.
+    private void map(long position) throws IOException {
+        windowStart = position;
+        window = channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(WINDOW_SIZE, fileSize - position));
+    }
+
+    // Makes sure the window holds the given number of bytes, mapping the next
+    // window if needed.
+    private void ensure(int bytes) throws IOException {
+        if (window.remaining() < bytes) {
+            map(windowStart + window.position());
+            if (window.remaining() < bytes) {
+                throw new IOException("Unexpected end of input.");
+            }
+        }
+    }
+
+    // Reads the next integer, used for the limits and the counts of the playlist
+    // section.
+    @Override
+    public int readInt() throws IOException {
+        ensure(4);
+        return window.getInt();
+    }
+
+    // Reads the next external song or playlist ID of the playlist section.
+    @Override
+    public long readId() throws IOException {
+        ensure(8);
+        return window.getLong();
+    }
+
+    // Reads the next event record into the event fields.
+    @Override
+    public void nextEvent() throws IOException {
+        ensure(RECORD_SIZE);
+        opcode = window.get();
+        songId = window.getLong();
+        playlistId = window.getLong();
+    }
+}
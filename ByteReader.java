@@ -0,0 +1,233 @@
+// ByteReader class
+/**
+ * Reads whitespace separated tokens from a range of a file directly as bytes.
+ * The file is read through a FileChannel into a reusable buffer and integers are parsed
+ * straight from the bytes, so reading numbers does not create any objects.
+ * Reads are positional, which allows several readers to work on different ranges of the
+ * same channel at the same time.
+ */
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+
+public class ByteReader {
+    public static final int DEFAULT_BUFFER_SIZE = 1 << 20; // Size of the read buffer in bytes.
+    private static final long MAX_LONG_PREFIX = Long.MAX_VALUE / 10; // Largest value that can take another digit.
+    private static final int MAX_LONG_LAST_DIGIT = (int) (Long.MAX_VALUE % 10); // Largest digit after MAX_LONG_PREFIX.
+
+    private final FileChannel channel; // Channel of the file being read.
+    private final byte[] buffer; // Buffer holding the bytes read from the file.
+    private final ByteBuffer byteBuffer; // ByteBuffer view of the buffer used for reading.
+    private long filePosition; // Position in the file of the next byte to read into the buffer.
+    private final long end; // Position in the file where reading stops.
+    private int index = 0; // Index of the next byte in the buffer.
+    private int limit = 0; // Number of valid bytes in the buffer.
+
+    // Constructor for reading the range [start, end) of the file.
+    public ByteReader(FileChannel channel, long start, long end, int bufferSize) {
+        this.channel = channel;
+        this.buffer = new byte[bufferSize];
+        this.byteBuffer = ByteBuffer.wrap(buffer);
+        this.filePosition = start;
+        this.end = end;
+    }
+
+    // Constructor for reading the whole file.
+    public ByteReader(FileChannel channel) throws IOException {
+        this(channel, 0, channel.size(), DEFAULT_BUFFER_SIZE);
+    }
+
+    // Keeps the bytes from index on, moves them to the start of the buffer and
+    // fills the rest. Returns false if there is nothing more to read.
+    private boolean fill() throws IOException {
+        int remaining = limit - index;
+        if (remaining > 0) {
+            System.arraycopy(buffer, index, buffer, 0, remaining);
+        }
+        index = 0;
+        limit = remaining;
+
+        int toRead = (int) Math.min(buffer.length - remaining, end - filePosition);
+        if (toRead <= 0) {
+            return false;
+        }
+        byteBuffer.clear();
+        byteBuffer.position(remaining);
+        byteBuffer.limit(remaining + toRead);
+        while (byteBuffer.hasRemaining()) {
+            int read = channel.read(byteBuffer, filePosition);
+            if (read < 0) {
+                break;
+            }
+            filePosition += read;
+        }
+        limit = byteBuffer.position();
+        return limit > remaining;
+    }
+
+    // Returns the position in the file of the next unread byte.
+    public long position() {
+        return filePosition - (limit - index);
+    }
+
+    // Counts the remaining lines that contain at least one token, consuming the
+    // rest of the range.
+    public int countLines() throws IOException {
+        int lines = 0;
+        boolean inLine = false;
+        do {
+            while (index < limit) {
+                byte b = buffer[index++];
+                if (b == '\n') {
+                    inLine = false;
+                } else if (!inLine && !isWhitespace(b)) {
+                    inLine = true;
+                    lines++;
+                }
+            }
+        } while (fill());
+        return lines;
+    }
+
+    // Checks if the byte is a separator between tokens.
+    private static boolean isWhitespace(byte b) {
+        return b == ' ' || b == '\n' || b == '\r' || b == '\t';
+    }
+
+    // Skips separators and checks if another token is available.
+    public boolean hasMoreTokens() throws IOException {
+        while (true) {
+            while (index < limit) {
+                if (!isWhitespace(buffer[index])) {
+                    return true;
+                }
+                index++;
+            }
+            if (!fill()) {
+                return false;
+            }
+        }
+    }
+
+    // Reads the next token as an integer.
+    public int readInt() throws IOException {
+        long value = readLong();
+        if (value != (int) value) {
+            throw new NumberFormatException("Number out of int range: " + value);
+        }
+        return (int) value;
+    }
+
+    // Reads the next token as a long integer. Numbers outside [-Long.MAX_VALUE,
+    // Long.MAX_VALUE] are rejected instead of wrapping around.
+    public long readLong() throws IOException {
+        if (!hasMoreTokens()) {
+            throw new IOException("Unexpected end of input.");
+        }
+
+        boolean negative = buffer[index] == '-';
+        if (negative) {
+            index++;
+        }
+
+        long value = 0;
+        int digits = 0;
+        while (true) {
+            while (index < limit) {
+                byte b = buffer[index];
+                if (b < '0' || b > '9') {
+                    if (!isWhitespace(b)) {
+                        throw new NumberFormatException("Invalid character in number: " + (char) b);
+                    }
+                    return finishLong(value, digits, negative);
+                }
+                int digit = b - '0';
+                if (value >= MAX_LONG_PREFIX && (value > MAX_LONG_PREFIX || digit > MAX_LONG_LAST_DIGIT)) {
+                    throw new NumberFormatException("Number out of long range.");
+                }
+                value = value * 10 + digit;
+                digits++;
+                index++;
+            }
+            if (!fill()) {
+                return finishLong(value, digits, negative);
+            }
+        }
+    }
+
+    // Checks that a number was read and applies its sign.
+    private static long finishLong(long value, int digits, boolean negative) {
+        if (digits == 0) {
+            throw new NumberFormatException("Missing digits in number.");
+        }
+        return negative ? -value : value;
+    }
+
+    // Reads the next token and packs its bytes into an int, the first byte in the
+    // highest position. Tokens of up to four bytes get a unique code.
+    public int readTokenCode() throws IOException {
+        if (!hasMoreTokens()) {
+            throw new IOException("Unexpected end of input.");
+        }
+
+        int code = 0;
+        while (true) {
+            while (index < limit) {
+                byte b = buffer[index];
+                if (isWhitespace(b)) {
+                    return code;
+                }
+                code = (code << 8) | (b & 0xFF);
+                index++;
+            }
+            if (!fill()) {
+                return code;
+            }
+        }
+    }
+
+    // Skips the rest of the current line, including the newline.
+    public void skipLine() throws IOException {
+        while (true) {
+            while (index < limit) {
+                if (buffer[index++] == '\n') {
+                    return;
+                }
+            }
+            if (!fill()) {
+                return;
+            }
+        }
+    }
+
+    // Reads the next token as a String.
+    public String readToken() throws IOException {
+        if (!hasMoreTokens()) {
+            throw new IOException("Unexpected end of input.");
+        }
+
+        int scanned = 0; // Number of token bytes already checked from index.
+        while (true) {
+            while (index + scanned < limit) {
+                if (isWhitespace(buffer[index + scanned])) {
+                    return takeToken(scanned);
+                }
+                scanned++;
+            }
+            if (scanned == buffer.length) {
+                throw new IOException("Token longer than the read buffer.");
+            }
+            if (!fill()) {
+                return takeToken(scanned);
+            }
+        }
+    }
+
+    // Creates a String from the next length bytes and moves past them.
+    private String takeToken(int length) {
+        String token = new String(buffer, index, length, StandardCharsets.UTF_8);
+        index += length;
+        return token;
+    }
+}
@@ -0,0 +1,161 @@
+// ContributionTracker class
+/**
+ * Tracks the songs every playlist contributes to one blend category.
+ * For each playlist it keeps the number of contributed songs and a min heap of them, so the
+ * smallest contribution of a playlist is available in O(1) and songs are added or removed in
+ * O(log limit). The heaps of all playlists live in segments of one pooled int array instead
+ * of one tree per playlist. A segment is allocated on the first contribution of a playlist
+ * and moved to a larger segment at the end of the pool when it is full.
+ * The position of every song in its playlist's heap is kept in a handle slot of the song
+ * store, which is possible since a song belongs to a single playlist.
+ */
+import java.util.Arrays;
+
+public class ContributionTracker {
+    private static final int MIN_SEGMENT_SIZE = 4; // Smallest segment given to a playlist.
+
+    private final SongStore store; // Store used for comparing songs.
+    private final int category; // Category used for comparing songs.
+    private final int handleSlot; // Slot of the heap positions in the store.
+    private final int playlistCategoryLimit; // Usual maximum number of songs contributed by a playlist.
+
+    private final int[] counts; // Number of songs contributed by each playlist.
+    private final int[] offsets; // Start of each playlist's segment in the pool.
+    private final int[] capacities; // Size of each playlist's segment, 0 before the first contribution.
+    private int[] pool = new int[0]; // Segments holding the min heaps of the playlists.
+    private int poolSize = 0; // Number of pool elements handed out to segments.
+
+    // Constructor to create an empty tracker for the given number of playlists.
+    public ContributionTracker(SongStore store, int category, int handleSlot, int playlistCategoryLimit,
+            int playlistNumber) {
+        this.store = store;
+        this.category = category;
+        this.handleSlot = handleSlot;
+        this.playlistCategoryLimit = playlistCategoryLimit;
+        this.counts = new int[playlistNumber];
+        this.offsets = new int[playlistNumber];
+        this.capacities = new int[playlistNumber];
+    }
+
+    // Returns the number of songs contributed by a playlist.
+    public int size(int playlistIndex) {
+        return counts[playlistIndex];
+    }
+
+    // Returns the smallest song contributed by a playlist, 0 if there is none.
+    public int getMinSong(int playlistIndex) {
+        if (counts[playlistIndex] == 0) {
+            return 0;
+        }
+        return pool[offsets[playlistIndex]];
+    }
+
+    // Get the sort key of a song in the category of the tracker.
+    private long key(int song) {
+        return store.getKey(song, category);
+    }
+
+    // Puts a song at a position of a playlist's heap and records the position.
+    private void place(int offset, int position, int song) {
+        pool[offset + position] = song;
+        store.setNodeHandle(song, handleSlot, position + 1);
+    }
+
+    // Makes sure a playlist's segment has room for the given number of songs.
+    private void ensureCapacity(int playlistIndex, int required) {
+        if (capacities[playlistIndex] >= required) {
+            return;
+        }
+        int capacity = Math.max(MIN_SEGMENT_SIZE, Math.min(playlistCategoryLimit, 2 * capacities[playlistIndex]));
+        while (capacity < required) {
+            capacity *= 2;
+        }
+        if (poolSize + capacity > pool.length) {
+            pool = Arrays.copyOf(pool, Math.max(poolSize + capacity, 2 * pool.length));
+        }
+        System.arraycopy(pool, offsets[playlistIndex], pool, poolSize, counts[playlistIndex]);
+        offsets[playlistIndex] = poolSize;
+        capacities[playlistIndex] = capacity;
+        poolSize += capacity;
+    }
+
+    // Replaces the contributions of a playlist with the songs in [from, to) of an
+    // array sorted in ascending order, which already form a min heap.
+    public void buildFromSorted(int playlistIndex, int[] sortedSongs, int from, int to) {
+        int count = to - from;
+        counts[playlistIndex] = 0;
+        ensureCapacity(playlistIndex, count);
+        int offset = offsets[playlistIndex];
+        for (int i = 0; i < count; i++) {
+            place(offset, i, sortedSongs[from + i]);
+        }
+        counts[playlistIndex] = count;
+    }
+
+    // Adds a song to the contributions of a playlist.
+    public void insert(int playlistIndex, int song) {
+        ensureCapacity(playlistIndex, counts[playlistIndex] + 1);
+        int position = counts[playlistIndex]++;
+        percUp(offsets[playlistIndex], position, song);
+    }
+
+    // Removes a song from the contributions of a playlist if it is there.
+    public void delete(int playlistIndex, int song) {
+        int position = store.getNodeHandle(song, handleSlot) - 1;
+        int offset = offsets[playlistIndex];
+        if (position < 0 || position >= counts[playlistIndex] || pool[offset + position] != song) {
+            return;
+        }
+        store.setNodeHandle(song, handleSlot, 0);
+
+        // Fill the hole with the last song and sift it in whichever direction it
+        // belongs.
+        int count = --counts[playlistIndex];
+        if (position < count) {
+            int last = pool[offset + count];
+            if (percUp(offset, position, last) == position) {
+                percDown(offset, count, position, last);
+            }
+        }
+    }
+
+    // Moves a song up from a position of a heap until its parent is smaller and
+    // returns its final position.
+    private int percUp(int offset, int position, int song) {
+        long songKey = key(song);
+        while (position > 0) {
+            int parentPosition = (position - 1) / 2;
+            int parent = pool[offset + parentPosition];
+            if (songKey >= key(parent)) {
+                break;
+            }
+            place(offset, position, parent);
+            position = parentPosition;
+        }
+        place(offset, position, song);
+        return position;
+    }
+
+    // Moves a song down from a position of a heap of count songs until its
+    // children are greater.
+    private void percDown(int offset, int count, int position, int song) {
+        long songKey = key(song);
+        while (2 * position + 1 < count) {
+            int child = 2 * position + 1;
+            long childKey = key(pool[offset + child]);
+            if (child + 1 < count) {
+                long rightKey = key(pool[offset + child + 1]);
+                if (rightKey < childKey) {
+                    child++;
+                    childKey = rightKey;
+                }
+            }
+            if (songKey <= childKey) {
+                break;
+            }
+            place(offset, position, pool[offset + child]);
+            position = child;
+        }
+        place(offset, position, song);
+    }
+}
@@ -5,15 +5,21 @@
  * This class manages the creation and updating of playlists based on various song categories
  * and handles the addition and removal of songs from these playlists.
  * It uses AVL Trees and Max Heaps for efficient data management and retrieval.
+ * Songs are handled by their IDs, their attributes are kept in the song store.
+ * Playlists and songs are handled by dense internal IDs, which are translated to their
+ * external IDs only when the output is written.
  * @author Yusuf Anil Yazici
  */
 
-import java.util.ArrayList;
-import java.util.HashSet;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
 
 public class EpicBlend {
     public static Playlist[] playlists; // Static array to store all playlists.
 
+    private final SongStore store; // Store holding the attributes of all songs.
+
     // Category limits for playlist management.
     private int playlistCategoryLimit;
     private int heartacheLimit;
@@ -25,72 +31,121 @@ public class EpicBlend {
     public AVLTree roadtripSongs;
     public AVLTree blissfulSongs;
 
-    // Lists to track added and removed songs during operations.
-    private ArrayList<Integer> added;
-    private ArrayList<Integer> removed;
-
-    // AVL Trees for song count management in each playlist by category.
-    private AVLTree[] heartachePlaylistSongCount;
-    private AVLTree[] roadtripPlaylistSongCount;
-    private AVLTree[] blissfulPlaylistSongCount;
-
-    // AVL Trees to manage playlists which are not full for each category.
-    private PlaylistAVLTree heartacheNotFullPlaylists;
-    private PlaylistAVLTree roadtripNotFullPlaylists;
-    private PlaylistAVLTree blissfulNotFullPlaylists;
+    // Union of the three category trees ordered by play count, each song is kept
+    // once no matter how many categories it belongs to. Songs with equal play
+    // counts and names are kept apart by their IDs.
+    private AVLTree blendByPlayCount;
+
+    // Version of the play count view, bumped whenever a song enters or leaves it.
+    private long blendVersion = 0;
+
+    // Last rendered ASK line and the blend version it was rendered for.
+    private int[] askSongIds = new int[0];
+    private long[] askExternalIds = new long[0];
+    private byte[] askLine = new byte[0];
+    private int askLineLength = 0;
+    private long askLineVersion = -1;
+
+    // Counters for ASK lines served from the cache and rendered again.
+    private long askCacheHits = 0;
+    private long askCacheMisses = 0;
+
+    // Songs added to and removed from each category by the current ADD or REM
+    // event, reused for every event.
+    private final UpdateResult result = new UpdateResult();
+
+    // Trackers of the songs each playlist contributes to each category.
+    private ContributionTracker heartacheContributions;
+    private ContributionTracker roadtripContributions;
+    private ContributionTracker blissfulContributions;
+
+    // Tournament trees holding the best replacement candidate of every not full
+    // playlist for each category.
+    private TournamentTree heartacheCandidates;
+    private TournamentTree roadtripCandidates;
+    private TournamentTree blissfulCandidates;
+
+    // Song IDs added to and removed from each category by an event, 0 where the
+    // category did not change. Indexed by category number - 1.
+    private static class UpdateResult {
+        final int[] added = new int[3];
+        final int[] removed = new int[3];
+
+        // Resets all song IDs to 0.
+        void clear() {
+            for (int i = 0; i < 3; i++) {
+                added[i] = 0;
+                removed[i] = 0;
+            }
+        }
+    }
 
     // Constructor to initialize the EpicBlend with category limits and playlist
     // number.
-    public EpicBlend(int playlistCategoryLimit, int heartacheLimit, int roadtripLimit, int blissfulLimit,
-            int playlistNumber) {
+    public EpicBlend(SongStore store, int playlistCategoryLimit, int heartacheLimit, int roadtripLimit,
+            int blissfulLimit, int playlistNumber) {
+        this.store = store;
         this.playlistCategoryLimit = playlistCategoryLimit;
         this.heartacheLimit = heartacheLimit;
         this.roadtripLimit = roadtripLimit;
         this.blissfulLimit = blissfulLimit;
-        this.added = new ArrayList<>();
-        this.removed = new ArrayList<>();
 
         // Initialize AVL Trees for each song category and playlist song count.
-        this.heartacheSongs = new AVLTree(1);
-        this.roadtripSongs = new AVLTree(2);
-        this.blissfulSongs = new AVLTree(3);
-
-        heartachePlaylistSongCount = new AVLTree[playlistNumber];
-        roadtripPlaylistSongCount = new AVLTree[playlistNumber];
-        blissfulPlaylistSongCount = new AVLTree[playlistNumber];
-
-        // Initialize AVL Trees for managing not full playlists in each category.
-        heartacheNotFullPlaylists = new PlaylistAVLTree(1);
-        roadtripNotFullPlaylists = new PlaylistAVLTree(2);
-        blissfulNotFullPlaylists = new PlaylistAVLTree(3);
+        this.heartacheSongs = new AVLTree(store, 1, SongStore.CATEGORY_TREE_HANDLES);
+        this.roadtripSongs = new AVLTree(store, 2, SongStore.CATEGORY_TREE_HANDLES + 1);
+        this.blissfulSongs = new AVLTree(store, 3, SongStore.CATEGORY_TREE_HANDLES + 2);
+        this.blendByPlayCount = new AVLTree(store, 0, AVLTree.NO_HANDLES, true);
+
+        heartacheContributions = new ContributionTracker(store, 1, SongStore.CONTRIBUTION_HANDLES,
+                playlistCategoryLimit, playlistNumber);
+        roadtripContributions = new ContributionTracker(store, 2, SongStore.CONTRIBUTION_HANDLES + 1,
+                playlistCategoryLimit, playlistNumber);
+        blissfulContributions = new ContributionTracker(store, 3, SongStore.CONTRIBUTION_HANDLES + 2,
+                playlistCategoryLimit, playlistNumber);
+
+        // Initialize tournament trees for the replacement candidates in each category.
+        heartacheCandidates = new TournamentTree(store, 1, playlistNumber);
+        roadtripCandidates = new TournamentTree(store, 2, playlistNumber);
+        blissfulCandidates = new TournamentTree(store, 3, playlistNumber);
     }
 
-    private PlaylistAVLTree getPlaylistTreeByCategory(String category) {
+    private TournamentTree getCandidatesByCategory(int category) {
         switch (category) {
-            case "Heartache":
-                return heartacheNotFullPlaylists;
-            case "Roadtrip":
-                return roadtripNotFullPlaylists;
-            case "Blissful":
-                return blissfulNotFullPlaylists;
+            case 1:
+                return heartacheCandidates;
+            case 2:
+                return roadtripCandidates;
+            case 3:
+                return blissfulCandidates;
             default:
                 throw new IllegalArgumentException("Invalid category");
         }
     }
 
-    private PlaylistAVLTree getPlaylistTreeByCategory(int category) {
+    private ContributionTracker getContributionsByCategory(int category) {
         switch (category) {
             case 1:
-                return heartacheNotFullPlaylists;
+                return heartacheContributions;
             case 2:
-                return roadtripNotFullPlaylists;
+                return roadtripContributions;
             case 3:
-                return blissfulNotFullPlaylists;
+                return blissfulContributions;
             default:
                 throw new IllegalArgumentException("Invalid category");
         }
     }
 
+    // Refreshes the replacement candidate of a playlist after its not-added songs
+    // or its song count changed in a category. Full playlists have no candidate.
+    private void refreshCandidate(Playlist playlist, int categoryNumber) {
+        int playlistIndex = playlist.getPlaylistId() - 1;
+        int candidate = 0;
+        if (getContributionsByCategory(categoryNumber).size(playlistIndex) < playlistCategoryLimit) {
+            candidate = playlist.getMaxAvl(categoryNumber);
+        }
+        getCandidatesByCategory(categoryNumber).update(playlistIndex, candidate);
+    }
+
     private int getCategoryNumber(String category) {
         switch (category) {
             case "Heartache":
@@ -108,311 +163,347 @@ public class EpicBlend {
         heartacheSongs.clear();
         roadtripSongs.clear();
         blissfulSongs.clear();
+        blendByPlayCount.clear();
+        blendVersion++;
+    }
+
+    // Inserts a song into a category tree and into the play count view if it
+    // is the first category containing the song.
+    private void insertIntoCategory(AVLTree categoryAVL, int song) {
+        categoryAVL.insert(song);
+        if (store.incrementBlendCount(song) == 1) {
+            blendByPlayCount.insert(song);
+            blendVersion++;
+        }
+    }
+
+    // Deletes a song from a category tree and from the play count view if no
+    // other category contains the song.
+    private void deleteFromCategory(AVLTree categoryAVL, int song) {
+        categoryAVL.delete(song);
+        if (store.decrementBlendCount(song) == 0) {
+            blendByPlayCount.delete(song);
+            blendVersion++;
+        }
     }
 
-    // Method to create playlists based on categories.
+    // Method to create playlists based on categories. The categories only share
+    // per-song state kept in separate elements for each category, so they are
+    // built concurrently.
     public void createPlaylists(Playlist[] playlists) {
         resetEpicBlend();
 
-        updateCategory(playlists, heartacheSongs, heartacheLimit, "Heartache", heartachePlaylistSongCount);
-        updateCategory(playlists, roadtripSongs, roadtripLimit, "Roadtrip", roadtripPlaylistSongCount);
-        updateCategory(playlists, blissfulSongs, blissfulLimit, "Blissful", blissfulPlaylistSongCount);
+        ForkJoinTask.invokeAll(
+                ForkJoinTask.adapt(() -> updateCategory(playlists, heartacheSongs, heartacheLimit, "Heartache",
+                        heartacheContributions)),
+                ForkJoinTask.adapt(() -> updateCategory(playlists, roadtripSongs, roadtripLimit, "Roadtrip",
+                        roadtripContributions)),
+                ForkJoinTask.adapt(() -> updateCategory(playlists, blissfulSongs, blissfulLimit, "Blissful",
+                        blissfulContributions)));
+
+        // Count the categories of every blend song and bulk load the play count
+        // view from the union of the three categories, taking each song once.
+        int[] blendSongs = new int[heartacheSongs.size + roadtripSongs.size + blissfulSongs.size];
+        int blendSongCount = 0;
+        for (AVLTree categoryAVL : new AVLTree[] { heartacheSongs, roadtripSongs, blissfulSongs }) {
+            for (int song : categoryAVL.getItems()) {
+                if (store.incrementBlendCount(song) == 1) {
+                    blendSongs[blendSongCount++] = song;
+                }
+            }
+        }
 
+        // The view orders songs with equal sort keys by descending ID, so the
+        // songs are put in that order before the stable sort by play count.
+        Arrays.sort(blendSongs, 0, blendSongCount);
+        for (int i = 0, j = blendSongCount - 1; i < j; i++, j--) {
+            int temp = blendSongs[i];
+            blendSongs[i] = blendSongs[j];
+            blendSongs[j] = temp;
+        }
+        store.sortByKey(blendSongs, blendSongCount, 0);
+        blendByPlayCount.buildFromSorted(blendSongs, 0, blendSongCount);
+        blendVersion++;
     }
 
     // Method to update the category of playlists based on the songs and limits.
     private void updateCategory(Playlist[] playlists, AVLTree targetList, int totalLimit, String category,
-            AVLTree[] playlistSongCountMap) {
-        ArrayList<Song> candidateSongs = new ArrayList<>();
+            ContributionTracker contributions) {
         int categoryNumber = getCategoryNumber(category);
 
-        for (Playlist playlist : playlists) {
-            int addedFromPlaylist = 0;
-            while (addedFromPlaylist < playlistCategoryLimit && !playlist.isCategoryEmpty(categoryNumber)) {
-                Song candidateSong = playlist.peekSongInCategory(category);
-                if (candidateSong != null) {
-                    candidateSongs.add(candidateSong);
-                    playlist.removeTopSongInCategory(categoryNumber); // Temporarily remove
-                    addedFromPlaylist++;
-                }
+        // Reserve a slice of the candidate array for the top songs of every playlist.
+        int[] candidateStart = new int[playlists.length + 1];
+        for (int i = 0; i < playlists.length; i++) {
+            candidateStart[i + 1] = candidateStart[i] + Math.min(playlistCategoryLimit, playlists[i].getSongCount());
+        }
+        int candidateCount = candidateStart[playlists.length];
+        int[] candidateSongs = new int[candidateCount];
+
+        // Collect the top songs of the playlists into their slices in parallel.
+        new PlaylistRangeTask(0, playlists.length, (from, to) -> {
+            for (int i = from; i < to; i++) {
+                Playlist playlist = playlists[i];
+                playlist.copyTopSongsInCategory(categoryNumber, candidateStart[i + 1] - candidateStart[i],
+                        candidateSongs, candidateStart[i]);
             }
-
-            playlistSongCountMap[playlist.getPlaylistId() - 1] = new AVLTree(categoryNumber);
-            getPlaylistTreeByCategory(category).insert(playlist);
-            // Update the PlaylistAVLTrees
-
+        }).invoke();
+
+        // Select the best songs, then sort only them into ascending order and bulk
+        // load the category tree from them.
+        int selectedCount = Math.max(0, Math.min(totalLimit, candidateCount));
+        int[] selectedSongs = candidateSongs;
+        store.selectTop(selectedSongs, candidateCount, selectedCount, categoryNumber);
+        store.sortByKey(selectedSongs, selectedCount, categoryNumber);
+        for (int i = 0; i < selectedCount; i++) {
+            int songToAdd = selectedSongs[i];
+            playlists[store.getPlaylistId(songToAdd) - 1].deleteAvl(songToAdd, categoryNumber);
         }
+        targetList.buildFromSorted(selectedSongs, 0, selectedCount);
 
-        MaxHeap heap = new MaxHeap(categoryNumber);
-        heap.buildHeap((ArrayList<Song>) candidateSongs);
-
-        while (!heap.isEmpty() && targetList.size < totalLimit) {
-            Song songToAdd = heap.delete();
-            targetList.insert(songToAdd);
-            playlistSongCountMap[songToAdd.getPlaylistId() - 1].insert(songToAdd);
-            if (playlistSongCountMap[songToAdd.getPlaylistId() - 1].size == playlistCategoryLimit) {
-
-            }
-            Playlist playlist = playlists[songToAdd.getPlaylistId() - 1];
-            playlist.deleteAvl(songToAdd, categoryNumber);
-            if (playlistSongCountMap[playlist.getPlaylistId() - 1].size == playlistCategoryLimit) {
-                getPlaylistTreeByCategory(category).delete(playlist);
-            }
-            ;
+        // Group the selection by playlist, keeping the ascending order within each
+        // group, and load the contributions of every playlist from its group.
+        int[] groupStart = new int[playlists.length + 1];
+        for (int i = 0; i < selectedCount; i++) {
+            groupStart[store.getPlaylistId(selectedSongs[i])]++;
+        }
+        for (int i = 1; i <= playlists.length; i++) {
+            groupStart[i] += groupStart[i - 1];
+        }
+        int[] groupNext = Arrays.copyOf(groupStart, playlists.length);
+        int[] groupedSongs = new int[selectedCount];
+        for (int i = 0; i < selectedCount; i++) {
+            int song = selectedSongs[i];
+            groupedSongs[groupNext[store.getPlaylistId(song) - 1]++] = song;
+        }
+        for (int i = 0; i < playlists.length; i++) {
+            contributions.buildFromSorted(i, groupedSongs, groupStart[i], groupStart[i + 1]);
         }
 
-        // Restore the removed songs back to playlists
+        // Set the replacement candidate of every playlist at once.
+        TournamentTree candidates = getCandidatesByCategory(categoryNumber);
         for (Playlist playlist : playlists) {
-            playlist.restoreRemovedSongs(categoryNumber);
+            int playlistIndex = playlist.getPlaylistId() - 1;
+            int candidate = 0;
+            if (contributions.size(playlistIndex) < playlistCategoryLimit) {
+                candidate = playlist.getMaxAvl(categoryNumber);
+            }
+            candidates.setLeaf(playlistIndex, candidate);
         }
+        candidates.rebuild();
     }
 
     // Adds a new song to playlists and updates them accordingly.
-    public void addSongAndUpdatePlaylists(Song newSong, Playlist playlist) {
-        this.added.clear();
+    public void addSongAndUpdatePlaylists(int newSong, Playlist playlist) {
+        result.clear();
 
-        Song removedFromHeartache = addSongToCategoryIfEligible(newSong, playlist, heartacheSongs, heartacheLimit, 1,
-                heartachePlaylistSongCount);
-        Song removedFromRoadtrip = addSongToCategoryIfEligible(newSong, playlist, roadtripSongs, roadtripLimit, 2,
-                roadtripPlaylistSongCount);
-        Song removedFromBlissful = addSongToCategoryIfEligible(newSong, playlist, blissfulSongs, blissfulLimit, 3,
-                blissfulPlaylistSongCount);
+        addSongToCategoryIfEligible(newSong, playlist, heartacheSongs, heartacheLimit, 1,
+                heartacheContributions);
+        addSongToCategoryIfEligible(newSong, playlist, roadtripSongs, roadtripLimit, 2,
+                roadtripContributions);
+        addSongToCategoryIfEligible(newSong, playlist, blissfulSongs, blissfulLimit, 3,
+                blissfulContributions);
 
-        printAdditionResults(newSong, removedFromHeartache,
-                removedFromRoadtrip,
-                removedFromBlissful);
+        printUpdateResults();
 
     }
 
-    // Adds a song to a category if it is eligible.
-    private Song addSongToCategoryIfEligible(Song song, Playlist playlist, AVLTree categoryAVL, int limit,
+    // Adds a song to a category if it is eligible and records the songs added to
+    // and removed from the category.
+    private void addSongToCategoryIfEligible(int song, Playlist playlist, AVLTree categoryAVL, int limit,
 
-            int categoryNumber, AVLTree[] playlistSongCountMap) {
+            int categoryNumber, ContributionTracker contributions) {
 
         int playlistId = playlist.getPlaylistId();
-        if (categoryAVL.size < limit || song.compare(categoryAVL.getMinSong(), categoryNumber) > 0) {
+        refreshCandidate(playlist, categoryNumber);
+        if (categoryAVL.size < limit || store.compare(song, categoryAVL.getMinSong(), categoryNumber) > 0) {
 
-            if (playlistSongCountMap[playlistId - 1].size >= playlistCategoryLimit) {
+            if (contributions.size(playlistId - 1) >= playlistCategoryLimit) {
 
-                Song smallestSong = playlistSongCountMap[playlistId - 1].getMinSong();
+                int smallestSong = contributions.getMinSong(playlistId - 1);
 
-                if (song.compare(smallestSong, categoryNumber) < 0) {
+                if (store.compare(song, smallestSong, categoryNumber) < 0) {
 
-                    return null;
+                    return;
                 }
 
-                categoryAVL.insert(song);
-                playlistSongCountMap[playlistId - 1].insert(song);
+                // Swap the smallest contribution of the full playlist for the song,
+                // removing first so the playlist never exceeds its limit.
+                insertIntoCategory(categoryAVL, song);
+                contributions.delete(playlistId - 1, smallestSong);
+                contributions.insert(playlistId - 1, song);
                 playlist.deleteAvl(song, categoryNumber);
 
-                this.added.add(categoryNumber);
-                categoryAVL.delete(smallestSong);
-                if (playlistSongCountMap[playlistId - 1] != null) {
-                    playlistSongCountMap[playlistId - 1].delete(smallestSong);
-
-                }
+                result.added[categoryNumber - 1] = song;
+                deleteFromCategory(categoryAVL, smallestSong);
                 playlist.insertAvl(smallestSong, categoryNumber);
+                refreshCandidate(playlist, categoryNumber);
 
-                return smallestSong;
-            }
-            categoryAVL.insert(song);
-            playlistSongCountMap[playlistId - 1].insert(song);
-            if (playlistSongCountMap[playlist.getPlaylistId() - 1].size == playlistCategoryLimit) {
-                getPlaylistTreeByCategory(categoryNumber).delete(playlist);
+                result.removed[categoryNumber - 1] = smallestSong;
+                return;
             }
+            insertIntoCategory(categoryAVL, song);
+            contributions.insert(playlistId - 1, song);
             playlist.deleteAvl(song, categoryNumber);
-            this.added.add(categoryNumber);
+            refreshCandidate(playlist, categoryNumber);
+            result.added[categoryNumber - 1] = song;
 
             if (categoryAVL.size > limit) {
 
-                Song deleted = categoryAVL.getMinSong();
-                int deletedPID = deleted.getPlaylistId();
-                categoryAVL.delete(deleted);
-                playlistSongCountMap[deletedPID - 1].delete(deleted);
+                int deleted = categoryAVL.getMinSong();
+                int deletedPID = store.getPlaylistId(deleted);
+                deleteFromCategory(categoryAVL, deleted);
+                contributions.delete(deletedPID - 1, deleted);
                 Playlist deletedPlaylist = playlists[deletedPID - 1];
                 deletedPlaylist.insertAvl(deleted, categoryNumber);
-                if (playlistSongCountMap[deletedPID - 1].size < playlistCategoryLimit) {
-                    getPlaylistTreeByCategory(categoryNumber).insert(deletedPlaylist);
-                }
+                refreshCandidate(deletedPlaylist, categoryNumber);
 
-                return deleted;
+                result.removed[categoryNumber - 1] = deleted;
             }
-            return null;
         }
-        return null;
-    }
-
-    // Prints the results of song addition.
-    private void printAdditionResults(Song newSong, Song removedFromHeartache,
-            Song removedFromRoadtrip,
-            Song removedFromBlissful) {
-
-        String addedOutput = "0 0 0";
-        String removedOutput = "0 0 0";
-
-        if (added.size() > 0) {
-            for (int element : added) {
-                addedOutput = replaceCategoryInOutput(addedOutput, newSong.getSongId(), element - 1);
-            }
-
-            removedOutput = replaceCategoryInOutput(removedOutput,
-                    removedFromHeartache != null ? removedFromHeartache.getSongId() : 0, 0);
-
-            removedOutput = replaceCategoryInOutput(removedOutput,
-                    removedFromRoadtrip != null ? removedFromRoadtrip.getSongId() : 0, 1);
-            removedOutput = replaceCategoryInOutput(removedOutput,
-                    removedFromBlissful != null ? removedFromBlissful.getSongId() : 0, 2);
-
-        }
-
-        FileWrite.writeToFile(addedOutput);
-        FileWrite.writeToFile(removedOutput);
-
     }
 
     // Removes a song from the playlists and updates them.
-    public void removeSongAndUpdatePlaylists(Song songToRemove, Playlist playlist) {
+    public void removeSongAndUpdatePlaylists(int songToRemove, Playlist playlist) {
 
-        // Clear the 'added' list to track which categories are affected by the removal
-        this.removed.clear();
+        // Clear the result to track which categories are affected by the removal
+        result.clear();
 
         // Remove song from each category if it's present
-        Song addedToHeartache = removeSongFromCategoryIfPresent(songToRemove, playlist, heartacheSongs, heartacheLimit,
-                1,
-                heartachePlaylistSongCount);
-        Song addedToRoadtrip = removeSongFromCategoryIfPresent(songToRemove, playlist, roadtripSongs, roadtripLimit, 2,
-                roadtripPlaylistSongCount);
-        Song addedToBlissful = removeSongFromCategoryIfPresent(songToRemove, playlist, blissfulSongs, blissfulLimit, 3,
-                blissfulPlaylistSongCount);
+        removeSongFromCategoryIfPresent(songToRemove, playlist, heartacheSongs, heartacheLimit, 1,
+                heartacheContributions);
+        removeSongFromCategoryIfPresent(songToRemove, playlist, roadtripSongs, roadtripLimit, 2,
+                roadtripContributions);
+        removeSongFromCategoryIfPresent(songToRemove, playlist, blissfulSongs, blissfulLimit, 3,
+                blissfulContributions);
 
         // Print the results of the removal
-        printRemovalResults(songToRemove, addedToHeartache, addedToRoadtrip, addedToBlissful);
+        printUpdateResults();
 
     }
 
-    // Removes a song from a category if it is present.
-    private Song removeSongFromCategoryIfPresent(Song song, Playlist playlist, AVLTree categoryAVL, int limit,
-            int categoryNumber, AVLTree[] playlistSongCountMap) {
+    // Removes a song from a category if it is present and records the songs
+    // removed from and added to the category.
+    private void removeSongFromCategoryIfPresent(int song, Playlist playlist, AVLTree categoryAVL, int limit,
+            int categoryNumber, ContributionTracker contributions) {
         int playlistId = playlist.getPlaylistId();
 
         playlist.removeSong(song);
+        refreshCandidate(playlist, categoryNumber);
 
         if (categoryAVL.contains(song)) {
             // Remove the song from the category AVL
-            categoryAVL.delete(song);
+            deleteFromCategory(categoryAVL, song);
 
-            playlistSongCountMap[playlistId - 1].delete(song);
-            if (playlistSongCountMap[playlistId - 1].size < playlistCategoryLimit) {
-                getPlaylistTreeByCategory(categoryNumber).insert(playlist);
-            }
+            contributions.delete(playlistId - 1, song);
+            refreshCandidate(playlist, categoryNumber);
 
-            this.removed.add(categoryNumber);
+            result.removed[categoryNumber - 1] = song;
 
             // Find a replacement song from the playlist's AVL tree if necessary
             if (categoryAVL.size < limit) {
 
-                Song replacementSong = getPlaylistTreeByCategory(categoryNumber).findMaxSongByMaxAvl();
+                int replacementSong = getCandidatesByCategory(categoryNumber).getMax();
 
-                if (replacementSong != null) {
+                if (replacementSong != 0) {
 
-                    categoryAVL.insert(replacementSong);
-                    playlistSongCountMap[replacementSong.getPlaylistId() - 1].insert(replacementSong);
-                    Playlist replacementPlaylist = playlists[replacementSong.getPlaylistId() - 1];
+                    insertIntoCategory(categoryAVL, replacementSong);
+                    contributions.insert(store.getPlaylistId(replacementSong) - 1, replacementSong);
+                    Playlist replacementPlaylist = playlists[store.getPlaylistId(replacementSong) - 1];
                     replacementPlaylist.deleteAvl(replacementSong,
                             categoryNumber);
+                    refreshCandidate(replacementPlaylist, categoryNumber);
 
-                    if (playlistSongCountMap[replacementSong.getPlaylistId() - 1].size == playlistCategoryLimit) {
-                        getPlaylistTreeByCategory(categoryNumber).delete(replacementPlaylist);
-                    }
-
-                    return replacementSong;
+                    result.added[categoryNumber - 1] = replacementSong;
+                    return;
                 }
 
                 playlist.removeSong(song);
             }
         }
-        return null;
     }
 
-    // Prints the results of song removal.
-    private void printRemovalResults(Song removedSong, Song addedToHeartache, Song addedToRoadtrip,
-            Song addedToBlissful) {
-        String removedOutput = "0 0 0";
-        String addedOutput = "0 0 0";
+    // Prints the songs added to each category, then the songs removed from each
+    // category by the current event.
+    private void printUpdateResults() {
+        FileWrite.writeIdTriple(store.getExternalId(result.added[0]), store.getExternalId(result.added[1]),
+                store.getExternalId(result.added[2]));
+        FileWrite.writeIdTriple(store.getExternalId(result.removed[0]), store.getExternalId(result.removed[1]),
+                store.getExternalId(result.removed[2]));
+    }
 
-        if (removed.size() > 0) {
-            for (int element : removed) {
-                removedOutput = replaceCategoryInOutput(removedOutput, removedSong.getSongId(), element - 1);
-            }
+    // Prints the current state of the EpicBlend.
+    public void printEpicBlend() {
+        if (askLineVersion == blendVersion) {
+            askCacheHits++;
+        } else {
+            askCacheMisses++;
+            renderEpicBlend();
+        }
 
-            addedOutput = replaceCategoryInOutput(addedOutput,
-                    addedToHeartache != null ? addedToHeartache.getSongId() : 0, 0);
+        if (askLineLength > 0) {
+            FileWrite.writeLine(askLine, askLineLength);
+        }
 
-            addedOutput = replaceCategoryInOutput(addedOutput,
-                    addedToRoadtrip != null ? addedToRoadtrip.getSongId() : 0, 1);
-            addedOutput = replaceCategoryInOutput(addedOutput,
-                    addedToBlissful != null ? addedToBlissful.getSongId() : 0, 2);
+    }
 
+    // Renders the current state of the EpicBlend into the cached ASK line.
+    private void renderEpicBlend() {
+        // The play count view already holds the unique songs of all categories in
+        // order, so the output is a single descending walk.
+        if (askSongIds.length < blendByPlayCount.size) {
+            askSongIds = new int[Math.max(blendByPlayCount.size, 2 * askSongIds.length)];
+            askExternalIds = new long[askSongIds.length];
+        }
+        int count = blendByPlayCount.copySongIdsDescending(askSongIds);
+        for (int i = 0; i < count; i++) {
+            askExternalIds[i] = store.getExternalId(askSongIds[i]);
         }
 
-        FileWrite.writeToFile(addedOutput);
-        FileWrite.writeToFile(removedOutput);
-
+        if (askLine.length < 21 * count) {
+            askLine = new byte[Math.max(21 * count, 2 * askLine.length)];
+        }
+        askLineLength = FileWrite.formatIdList(askExternalIds, count, askLine);
+        askLineVersion = blendVersion;
     }
 
-    // Replaces a category in the output with a song ID.
-    private String replaceCategoryInOutput(String output, int songId, int categoryIndex) {
-        String[] parts = output.split(" ");
-        parts[categoryIndex] = Integer.toString(songId);
-        return String.join(" ", parts);
+    // Getters for the ASK cache counters.
+    public long getAskCacheHits() {
+        return askCacheHits;
     }
 
-    // Prints the current state of the EpicBlend.
-    public void printEpicBlend() {
-        // Get sorted lists of unique songs from each category
-        ArrayList<Song> heartacheList = heartacheSongs.getItems();
-        ArrayList<Song> roadtripList = roadtripSongs.getItems();
-        ArrayList<Song> blissfulList = blissfulSongs.getItems();
-
-        // Combine and sort all unique songs
-        ArrayList<Song> combinedList = mergeSortedLists(heartacheList, roadtripList, blissfulList);
-
-        // Print the combined list
-        StringBuilder output = new StringBuilder();
-        for (Song song : combinedList) {
-            output.append(song.getSongId()).append(" ");
-        }
-
-        if (output.length() > 0) {
-            String outputStr = output.toString().trim();
-            FileWrite.writeToFile(outputStr);
-        }
+    public long getAskCacheMisses() {
+        return askCacheMisses;
+    }
 
+    // Work done on a range of playlists.
+    private interface PlaylistWork {
+        void run(int from, int to);
     }
 
-    // Merges sorted lists of songs into a combined sorted list.
-    private ArrayList<Song> mergeSortedLists(ArrayList<Song>... lists) {
-        // Maxheap to merge sorted lists
-        MaxHeap heap = new MaxHeap(0); // Compare based on playCount
+    // Fork/join task that runs the playlist work on a range of playlists by
+    // splitting the range in halves down to a minimum size.
+    private static class PlaylistRangeTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        private static final int PLAYLISTS_PER_TASK = 1024; // Ranges of at most this size are not split.
 
-        // Add all songs to the priority queue
-        for (ArrayList<Song> list : lists) {
-            for (Song song : list) {
-                heap.add(song);
-            }
+        private final int from; // First playlist index of the range.
+        private final int to; // End of the range, exclusive.
+        private final PlaylistWork work; // Work to run on the range.
+
+        PlaylistRangeTask(int from, int to, PlaylistWork work) {
+            this.from = from;
+            this.to = to;
+            this.work = work;
         }
 
-        // Extract songs from the queue to get them in sorted order
-        ArrayList<Song> mergedList = new ArrayList<>();
-        HashSet<Integer> addedSongIds = new HashSet<>();
-        while (!heap.isEmpty()) {
-            Song song = heap.delete();
-            if (addedSongIds.add(song.getSongId())) {
-                mergedList.add(song);
+        @Override
+        protected void compute() {
+            if (to - from <= PLAYLISTS_PER_TASK) {
+                work.run(from, to);
+                return;
             }
+            int middle = (from + to) >>> 1;
+            invokeAll(new PlaylistRangeTask(from, middle, work), new PlaylistRangeTask(middle, to, work));
         }
-
-        return mergedList;
     }
-
-}
\ No newline at end of file
+}
@@ -0,0 +1,61 @@
+// EventLogConverter class
+/**
+ * Converts a test case file from the text format to the binary event log format read by
+ * BinaryEventReader, so that the same trace can be replayed without any text parsing.
+ * Usage: java EventLogConverter <text test case file> <binary event log file>
+ */
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+public class EventLogConverter {
+    public static void main(String[] args) {
+        try {
+            convert(args[0], args[1]);
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    // Converts the text test case file to a binary event log.
+    public static void convert(String textFilePath, String binaryFilePath) throws IOException {
+        try (FileChannel channel = FileChannel.open(Paths.get(textFilePath), StandardOpenOption.READ);
+                DataOutputStream output = new DataOutputStream(
+                        new BufferedOutputStream(new FileOutputStream(binaryFilePath), 1 << 16))) {
+            EventReader reader = new EventReader(channel);
+            output.writeInt(BinaryEventReader.MAGIC);
+
+            // Copies the four limits and the number of playlists.
+            for (int i = 0; i < 4; i++) {
+                output.writeInt(reader.readInt());
+            }
+            int numPlaylists = reader.readInt();
+            output.writeInt(numPlaylists);
+
+            // Copies the ID, the number of songs and the song IDs of every playlist.
+            for (int i = 0; i < numPlaylists; i++) {
+                output.writeLong(reader.readId());
+                int numSongs = reader.readInt();
+                output.writeInt(numSongs);
+                for (int j = 0; j < numSongs; j++) {
+                    output.writeLong(reader.readId());
+                }
+            }
+
+            // Writes every event as a fixed-width record.
+            int numEvents = reader.readInt();
+            output.writeInt(numEvents);
+            for (int i = 0; i < numEvents; i++) {
+                reader.nextEvent();
+                boolean hasArguments = reader.opcode == EventSource.ADD || reader.opcode == EventSource.REM;
+                output.writeByte(reader.opcode);
+                output.writeLong(hasArguments ? reader.songId : 0);
+                output.writeLong(hasArguments ? reader.playlistId : 0);
+            }
+        }
+    }
+}
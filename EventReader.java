@@ -0,0 +1,59 @@
+// EventReader class
+/**
+ * Reads the text format of the test case file as a stream of integers and events.
+ * Opcodes are recognized from their bytes and arguments are parsed straight from the read
+ * buffer, so reading an event does not create any objects.
+ */
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+
+public class EventReader extends EventSource {
+    // Token codes of the event names as packed by ByteReader.readTokenCode().
+    private static final int ADD_CODE = ('A' << 16) | ('D' << 8) | 'D';
+    private static final int REM_CODE = ('R' << 16) | ('E' << 8) | 'M';
+    private static final int ASK_CODE = ('A' << 16) | ('S' << 8) | 'K';
+
+    private final ByteReader reader; // Reader over the test case file.
+
+    // Constructor for reading the whole test case file.
+    public EventReader(FileChannel channel) throws IOException {
+        this.reader = new ByteReader(channel);
+    }
+
+    // Reads the next integer, used for the limits and the counts of the playlist
+    // section.
+    @Override
+    public int readInt() throws IOException {
+        return reader.readInt();
+    }
+
+    // Reads the next external song or playlist ID of the playlist section.
+    @Override
+    public long readId() throws IOException {
+        return reader.readLong();
+    }
+
+    // Reads the next event line into the event fields.
+    @Override
+    public void nextEvent() throws IOException {
+        switch (reader.readTokenCode()) {
+            case ADD_CODE:
+                opcode = ADD;
+                songId = reader.readLong();
+                playlistId = reader.readLong();
+                break;
+            case REM_CODE:
+                opcode = REM;
+                songId = reader.readLong();
+                playlistId = reader.readLong();
+                break;
+            case ASK_CODE:
+                opcode = ASK;
+                break;
+            default:
+                opcode = UNKNOWN;
+                break;
+        }
+        reader.skipLine(); // Ignores anything else on the event line.
+    }
+}
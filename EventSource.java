@@ -0,0 +1,46 @@
+// EventSource class
+/**
+ * Source of the test case input, read as a stream of integers followed by events.
+ * The limits and the playlist section are read as plain integers and IDs, and every event is
+ * decoded into the primitive fields of the source, which act as a reusable event slot.
+ * Song and playlist IDs are read as 64-bit external IDs and translated by the caller.
+ * The test case can either be the text format or the binary event log, the format is
+ * detected from the first bytes of the file.
+ */
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+public abstract class EventSource {
+    // Event opcodes.
+    public static final int UNKNOWN = 0;
+    public static final int ADD = 1;
+    public static final int REM = 2;
+    public static final int ASK = 3;
+
+    // Fields of the last event read, the IDs are external IDs.
+    public int opcode;
+    public long songId;
+    public long playlistId;
+
+    // Reads the next integer, used for the limits and the counts of the playlist
+    // section.
+    public abstract int readInt() throws IOException;
+
+    // Reads the next external song or playlist ID of the playlist section.
+    public abstract long readId() throws IOException;
+
+    // Reads the next event into the event fields.
+    public abstract void nextEvent() throws IOException;
+
+    // Opens the right source for the format of the test case file.
+    public static EventSource open(FileChannel channel) throws IOException {
+        ByteBuffer magic = ByteBuffer.allocate(4);
+        while (magic.hasRemaining() && channel.read(magic, magic.position()) > 0) {
+        }
+        if (!magic.hasRemaining() && magic.getInt(0) == BinaryEventReader.MAGIC) {
+            return new BinaryEventReader(channel);
+        }
+        return new EventReader(channel);
+    }
+}
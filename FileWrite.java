@@ -2,55 +2,170 @@
 
 /**
  * Writes output to the specified file.
- * 
+ * Lines are formatted as bytes into a large reusable buffer, IDs are written digit by
+ * digit as 64-bit integers without creating Strings, and the buffer is written to a FileChannel only when
+ * it fills up or the writer is closed.
+ *
  * @author Yusuf Anil Yazici
  */
 
-import java.io.BufferedWriter;
-import java.io.FileWriter;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
 
 public class FileWrite {
-    private static BufferedWriter writer = null;
-    private static final int FLUSH_INTERVAL = 1000; // Flush every 1000 lines
-    private static int writeCount = 0;
+    private static final int BUFFER_SIZE = 1 << 22; // Size of the output buffer in bytes.
+    private static final int MAX_LONG_LENGTH = 20; // Maximum number of bytes of a formatted long.
 
-    // Take the filepath of the output file and create a bufferedwriter.
+    private static FileChannel channel = null;
+    private static byte[] buffer = null;
+    private static ByteBuffer byteBuffer = null;
+    private static int position = 0; // Number of bytes waiting in the buffer.
+
+    // Take the filepath of the output file and open a channel to it.
     public static void initWriter(String filePath) {
         try {
-            writer = new BufferedWriter(new FileWriter(filePath));
-            writeCount = 0;
+            channel = FileChannel.open(Paths.get(filePath), StandardOpenOption.CREATE,
+                    StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+            buffer = new byte[BUFFER_SIZE];
+            byteBuffer = ByteBuffer.wrap(buffer);
+            position = 0;
         } catch (IOException e) {
             e.printStackTrace();
         }
     }
 
-    // Write the specified line to the output file.
-    public static void writeToFile(String line) {
-        try {
-            if (writer != null) {
-                writer.write(line);
-                writer.newLine();
-                writeCount++;
+    // Write three IDs separated by spaces as a line to the output file.
+    public static void writeIdTriple(long first, long second, long third) {
+        if (channel == null) {
+            return;
+        }
+        if (!ensureSpace(3 * (MAX_LONG_LENGTH + 1))) {
+            return;
+        }
+        position = appendLong(buffer, position, first);
+        buffer[position++] = ' ';
+        position = appendLong(buffer, position, second);
+        buffer[position++] = ' ';
+        position = appendLong(buffer, position, third);
+        buffer[position++] = '\n';
+    }
 
-                if (writeCount % FLUSH_INTERVAL == 0) {
-                    writer.flush(); // Flush periodically
+    // Write the first length bytes of the line and a newline to the output file.
+    public static void writeLine(byte[] line, int length) {
+        if (channel == null) {
+            return;
+        }
+        try {
+            if (length + 1 > buffer.length - position) {
+                flush();
+                if (length + 1 > buffer.length) {
+                    // The line does not fit in the buffer, so it is written directly.
+                    writeFully(ByteBuffer.wrap(line, 0, length));
+                    length = 0;
                 }
             }
+            System.arraycopy(line, 0, buffer, position, length);
+            position += length;
+            buffer[position++] = '\n';
         } catch (IOException e) {
-            e.printStackTrace();
+            abort(e);
+        }
+    }
+
+    // Formats the first count IDs separated by spaces into the target and returns
+    // the number of bytes used. The target needs room for 21 bytes per ID.
+    public static int formatIdList(long[] ids, int count, byte[] target) {
+        int length = 0;
+        for (int i = 0; i < count; i++) {
+            if (i > 0) {
+                target[length++] = ' ';
+            }
+            length = appendLong(target, length, ids[i]);
+        }
+        return length;
+    }
+
+    // Formats a long integer into the target at the given position and returns
+    // the position after it. Digits are taken from the value made non-positive,
+    // which also covers Long.MIN_VALUE.
+    private static int appendLong(byte[] target, int position, long value) {
+        long remaining = value;
+        if (remaining < 0) {
+            target[position++] = '-';
+        } else {
+            remaining = -remaining;
+        }
+
+        int end = position;
+        long digits = remaining;
+        do {
+            end++;
+            digits /= 10;
+        } while (digits < 0);
+
+        int index = end;
+        do {
+            target[--index] = (byte) ('0' - remaining % 10);
+            remaining /= 10;
+        } while (remaining < 0);
+        return end;
+    }
+
+    // Flushes the buffer if it has less than the given number of free bytes.
+    // Returns false if the flush failed and the writer was stopped.
+    private static boolean ensureSpace(int bytes) {
+        if (buffer.length - position < bytes) {
+            try {
+                flush();
+            } catch (IOException e) {
+                abort(e);
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Reports a failed write and stops the writer. The buffered bytes are
+    // dropped and later writes are ignored, as they could not reach the file.
+    private static void abort(IOException e) {
+        position = 0;
+        try {
+            channel.close();
+        } catch (IOException closeError) {
+            e.addSuppressed(closeError);
+        }
+        channel = null;
+        e.printStackTrace();
+    }
+
+    // Writes the buffered bytes to the channel.
+    private static void flush() throws IOException {
+        byteBuffer.clear();
+        byteBuffer.limit(position);
+        writeFully(byteBuffer);
+        position = 0;
+    }
+
+    // Writes all remaining bytes of the ByteBuffer to the channel.
+    private static void writeFully(ByteBuffer source) throws IOException {
+        while (source.hasRemaining()) {
+            channel.write(source);
         }
     }
 
     // Close the writer.
     public static void closeWriter() {
         try {
-            if (writer != null) {
-                writer.flush();
-                writer.close();
+            if (channel != null) {
+                flush();
+                channel.close();
+                channel = null;
             }
         } catch (IOException e) {
-            e.printStackTrace();
+            abort(e);
         }
     }
 }
@@ -0,0 +1,149 @@
+// IntIntMap class
+/**
+ * Hash map from int keys to int values stored in two primitive arrays, so keys are never
+ * boxed and no entry objects are allocated.
+ * It uses open addressing with linear probing over a power of two table that is kept at most
+ * half full. Removed entries are not marked with tombstones: the entries after them in the
+ * probe run are shifted back, so lookups never walk over deleted slots.
+ * The key 0 marks a free slot in the table and is stored separately.
+ */
+public class IntIntMap {
+    private static final int FREE = 0; // Key of a free slot in the table.
+    private static final int MIN_CAPACITY = 8; // Smallest table size.
+
+    private int[] keys; // Keys of the entries, FREE for free slots.
+    private int[] values; // Values of the entries at the same slots as their keys.
+    private int mask; // Table size - 1, used to wrap slot indexes.
+    private int size; // Number of entries, including the entry for key 0.
+    private boolean hasFreeKey; // Whether the key 0 has an entry.
+    private int freeKeyValue; // Value of the key 0.
+
+    // Constructor to create an empty map with room for the expected number of
+    // entries before resizing.
+    public IntIntMap(int expectedSize) {
+        int capacity = MIN_CAPACITY;
+        while (capacity < 2 * expectedSize) {
+            capacity <<= 1;
+        }
+        this.keys = new int[capacity];
+        this.values = new int[capacity];
+        this.mask = capacity - 1;
+    }
+
+    // Returns the number of entries in the map.
+    public int size() {
+        return size;
+    }
+
+    // Returns the first slot to probe for a key.
+    private int slotOf(int key) {
+        int hash = key * 0x9E3779B9; // Spreads consecutive keys over the table.
+        return (hash ^ (hash >>> 16)) & mask;
+    }
+
+    // Returns the slot holding a key, -1 if the key is not in the table.
+    private int find(int key) {
+        int slot = slotOf(key);
+        while (keys[slot] != FREE) {
+            if (keys[slot] == key) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+
+    // Returns whether the map has an entry for a key.
+    public boolean containsKey(int key) {
+        if (key == FREE) {
+            return hasFreeKey;
+        }
+        return find(key) >= 0;
+    }
+
+    // Returns the value of a key, or the given default if the key is not in the
+    // map.
+    public int get(int key, int defaultValue) {
+        if (key == FREE) {
+            return hasFreeKey ? freeKeyValue : defaultValue;
+        }
+        int slot = find(key);
+        return slot >= 0 ? values[slot] : defaultValue;
+    }
+
+    // Sets the value of a key, adding the key if it is not in the map.
+    public void put(int key, int value) {
+        if (key == FREE) {
+            if (!hasFreeKey) {
+                hasFreeKey = true;
+                size++;
+            }
+            freeKeyValue = value;
+            return;
+        }
+        int slot = slotOf(key);
+        while (keys[slot] != FREE) {
+            if (keys[slot] == key) {
+                values[slot] = value;
+                return;
+            }
+            slot = (slot + 1) & mask;
+        }
+        keys[slot] = key;
+        values[slot] = value;
+        if (++size > keys.length / 2) {
+            resize(2 * keys.length);
+        }
+    }
+
+    // Removes the entry of a key if it is in the map.
+    public void remove(int key) {
+        if (key == FREE) {
+            if (hasFreeKey) {
+                hasFreeKey = false;
+                size--;
+            }
+            return;
+        }
+        int slot = find(key);
+        if (slot < 0) {
+            return;
+        }
+        size--;
+
+        // Shift back every following entry of the probe run whose first slot does
+        // not lie between the hole and the entry.
+        int hole = slot;
+        int next = (hole + 1) & mask;
+        while (keys[next] != FREE) {
+            int home = slotOf(keys[next]);
+            if (((next - home) & mask) >= ((next - hole) & mask)) {
+                keys[hole] = keys[next];
+                values[hole] = values[next];
+                hole = next;
+            }
+            next = (next + 1) & mask;
+        }
+        keys[hole] = FREE;
+    }
+
+    // Moves all entries into a table of the given size.
+    private void resize(int capacity) {
+        int[] oldKeys = keys;
+        int[] oldValues = values;
+        keys = new int[capacity];
+        values = new int[capacity];
+        mask = capacity - 1;
+        for (int i = 0; i < oldKeys.length; i++) {
+            int key = oldKeys[i];
+            if (key != FREE) {
+                int slot = slotOf(key);
+                while (keys[slot] != FREE) {
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = key;
+                values[slot] = oldValues[i];
+            }
+        }
+    }
+}
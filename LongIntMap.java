@@ -0,0 +1,118 @@
+// LongIntMap class
+/**
+ * Hash map from long keys to int values stored in two primitive arrays, used to translate
+ * external 64-bit IDs into dense indexes without boxing.
+ * It uses open addressing with linear probing over a power of two table that is kept at most
+ * half full. Entries are only added, since the translations are built once at load time.
+ * The key 0 marks a free slot in the table and is stored separately.
+ */
+public class LongIntMap {
+    private static final long FREE = 0; // Key of a free slot in the table.
+    private static final int MIN_CAPACITY = 8; // Smallest table size.
+
+    private long[] keys; // Keys of the entries, FREE for free slots.
+    private int[] values; // Values of the entries at the same slots as their keys.
+    private int mask; // Table size - 1, used to wrap slot indexes.
+    private int size; // Number of entries, including the entry for key 0.
+    private boolean hasFreeKey; // Whether the key 0 has an entry.
+    private int freeKeyValue; // Value of the key 0.
+
+    // Constructor to create an empty map with room for the expected number of
+    // entries before resizing.
+    public LongIntMap(int expectedSize) {
+        int capacity = MIN_CAPACITY;
+        while (capacity < 2 * expectedSize) {
+            capacity <<= 1;
+        }
+        this.keys = new long[capacity];
+        this.values = new int[capacity];
+        this.mask = capacity - 1;
+    }
+
+    // Returns the number of entries in the map.
+    public int size() {
+        return size;
+    }
+
+    // Returns the first slot to probe for a key.
+    private int slotOf(long key) {
+        long hash = key * 0x9E3779B97F4A7C15L; // Spreads consecutive and sparse keys over the table.
+        return (int) (hash ^ (hash >>> 32)) & mask;
+    }
+
+    // Returns whether the map has an entry for a key.
+    public boolean containsKey(long key) {
+        if (key == FREE) {
+            return hasFreeKey;
+        }
+        int slot = slotOf(key);
+        while (keys[slot] != FREE) {
+            if (keys[slot] == key) {
+                return true;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return false;
+    }
+
+    // Returns the value of a key, or the given default if the key is not in the
+    // map.
+    public int get(long key, int defaultValue) {
+        if (key == FREE) {
+            return hasFreeKey ? freeKeyValue : defaultValue;
+        }
+        int slot = slotOf(key);
+        while (keys[slot] != FREE) {
+            if (keys[slot] == key) {
+                return values[slot];
+            }
+            slot = (slot + 1) & mask;
+        }
+        return defaultValue;
+    }
+
+    // Sets the value of a key, adding the key if it is not in the map.
+    public void put(long key, int value) {
+        if (key == FREE) {
+            if (!hasFreeKey) {
+                hasFreeKey = true;
+                size++;
+            }
+            freeKeyValue = value;
+            return;
+        }
+        int slot = slotOf(key);
+        while (keys[slot] != FREE) {
+            if (keys[slot] == key) {
+                values[slot] = value;
+                return;
+            }
+            slot = (slot + 1) & mask;
+        }
+        keys[slot] = key;
+        values[slot] = value;
+        if (++size > keys.length / 2) {
+            resize(2 * keys.length);
+        }
+    }
+
+    // Moves all entries into a table of the given size.
+    private void resize(int capacity) {
+        long[] oldKeys = keys;
+        int[] oldValues = values;
+        keys = new long[capacity];
+        values = new int[capacity];
+        mask = capacity - 1;
+        for (int i = 0; i < oldKeys.length; i++) {
+            long key = oldKeys[i];
+            if (key != FREE) {
+                int slot = slotOf(key);
+                while (keys[slot] != FREE) {
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = key;
+                values[slot] = oldValues[i];
+            }
+        }
+    }
+}
@@ -4,56 +4,160 @@
  * Implements a max heap data structure specifically for storing and managing songs based on a specified category.
  * This max heap structure ensures that the song with the highest score in the given category is always at the top.
  * It is designed to efficiently handle operations like adding, deleting, and peeking at the top song.
+ * Songs are stored by their IDs in a growable int array and compared by their sort keys in the song store.
+ * An indexed heap also records the position of every song it holds in the song store, so any
+ * song can be removed or sifted in O(log n). A song belongs to one playlist at a time, so the
+ * playlist heaps of a category share a single position per song. Temporary heaps are not indexed.
  * @author Yusuf Anil Yazici
  */
-import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Arrays;
 
 public class MaxHeap {
-    private ArrayList<Song> items; // ArrayList to store the elements (songs) in the heap.
+    private int[] items; // Array to store the elements (song IDs) in the heap.
+    private int size; // Number of elements in the heap.
+    private final SongStore store; // Store used for comparing songs.
     private int category; // The category based on which songs are compared in the heap.
+    private final boolean indexed; // Whether the positions of the songs are kept in the store.
 
-    // Constructor for initializing the max heap with a specific category.
-    public MaxHeap(int category) {
-        items = new ArrayList<>();
+    // Constructor for initializing a max heap with a specific category that is
+    // not indexed.
+    public MaxHeap(SongStore store, int category) {
+        this(store, category, false);
+    }
+
+    // Constructor for initializing a max heap with a specific category,
+    // recording the positions of its songs in the store if indexed.
+    public MaxHeap(SongStore store, int category, boolean indexed) {
+        items = new int[4];
+        size = 0;
+        this.store = store;
         this.category = category;
+        this.indexed = indexed;
     }
 
     // Returns the number of items in the heap.
     public int size() {
-        return items.size();
+        return size;
     }
 
     // Checks if the heap is empty.
     public boolean isEmpty() {
-        return items.isEmpty();
+        return size == 0;
+    }
+
+    // Returns a copy of the items in the heap.
+    public int[] getItems() {
+        return Arrays.copyOf(items, size);
     }
 
-    // Returns the list of items in the heap.
-    public ArrayList<Song> getItems() {
-        return items;
+    // Peeks at the top song in the heap without removing it, 0 if the heap is empty.
+    public int peek() {
+        if (size == 0) {
+            return 0;
+        }
+        return items[0]; // The top song is always at index 0.
     }
 
-    // Peeks at the top song in the heap without removing it.
-    public Song peek() {
-        if (items.size() == 0) {
-            return null;
+    // Copies the k greatest songs of the heap in descending order into the
+    // target starting at offset, without changing the heap, and returns the
+    // number of songs copied. A small heap of frontier indexes walks the heap
+    // array from the top, so this costs O(k log k).
+    public int copyTop(int k, int[] target, int offset) {
+        int count = Math.min(k, size);
+        if (count == 0) {
+            return 0;
+        }
+
+        // Each copied index adds at most two children and removes itself.
+        int[] frontier = new int[count + 1];
+        int frontierSize = 0;
+        frontier[frontierSize++] = 0;
+        for (int copied = 0; copied < count; copied++) {
+            int index = frontier[0];
+            target[offset + copied] = items[index];
+
+            // Replace the copied index by its children.
+            int leftChild = 2 * index + 1;
+            frontier[0] = frontier[--frontierSize];
+            siftFrontierDown(frontier, frontierSize, 0);
+            if (leftChild < size) {
+                frontier[frontierSize++] = leftChild;
+                siftFrontierUp(frontier, frontierSize - 1);
+                if (leftChild + 1 < size) {
+                    frontier[frontierSize++] = leftChild + 1;
+                    siftFrontierUp(frontier, frontierSize - 1);
+                }
+            }
         }
-        return items.get(0); // The top song is always at index 0.
+        return count;
     }
 
-    // Internal method to bubble up the element after insertion.
-    private void percUp() {
-        int k = items.size() - 1; // Start with the last element.
+    // Moves a frontier index up until its song is not greater than its parent's.
+    private void siftFrontierUp(int[] frontier, int k) {
+        int index = frontier[k];
+        long indexKey = key(items[index]);
+        while (k > 0) {
+            int p = (k - 1) / 2;
+            if (indexKey <= key(items[frontier[p]])) {
+                break;
+            }
+            frontier[k] = frontier[p];
+            k = p;
+        }
+        frontier[k] = index;
+    }
+
+    // Moves a frontier index down until its song is not smaller than its children's.
+    private void siftFrontierDown(int[] frontier, int frontierSize, int k) {
+        if (frontierSize == 0) {
+            return;
+        }
+        int index = frontier[k];
+        long indexKey = key(items[index]);
+        while (2 * k + 1 < frontierSize) {
+            int child = 2 * k + 1;
+            long childKey = key(items[frontier[child]]);
+            if (child + 1 < frontierSize) {
+                long rightKey = key(items[frontier[child + 1]]);
+                if (rightKey > childKey) {
+                    child++;
+                    childKey = rightKey;
+                }
+            }
+            if (indexKey >= childKey) {
+                break;
+            }
+            frontier[k] = frontier[child];
+            k = child;
+        }
+        frontier[k] = index;
+    }
+
+    // Get the sort key of a song in the category of the heap.
+    private long key(int song) {
+        return store.getKey(song, category);
+    }
+
+    // Puts a song at an index of the array and records its position.
+    private void place(int index, int song) {
+        items[index] = song;
+        if (indexed) {
+            store.setHeapPosition(song, category, index);
+        }
+    }
+
+    // Internal method to bubble up the element at index k, returns its final
+    // index.
+    private int percUp(int k) {
+        int item = items[k];
+        long itemKey = key(item);
         while (k > 0) {
             int p = (k - 1) / 2; // Parent index.
-            Song item = items.get(k);
-            Song parent = items.get(p);
+            int parent = items[p];
 
-            if (item.compare(parent, category) > 0) {
-                // Swap child with parent if child is greater.
-                items.set(k, parent);
-                items.set(p, item);
+            if (itemKey > key(parent)) {
+                // Move the parent down if the child is greater.
+                place(k, parent);
 
                 // Move up one level in the heap.
                 k = p;
@@ -61,79 +165,121 @@ public class MaxHeap {
                 break;
             }
         }
+        place(k, item);
+        return k;
     }
 
     // Adds a new song to the heap.
-    public void add(Song item) {
-        items.add(item); // Add the new song to the end.
-        percUp(); // Adjust the position of the newly added song.
-    }
-
-    // Builds the heap from a HashMap of songs.
-    public void buildHeap(HashMap<Integer, Song> sourceMap) {
-        // Load songs from the HashMap into the items list.
-        this.items = new ArrayList<>(sourceMap.values());
-
-        // Adjust the positions of the elements to form a valid max heap.
-        for (int i = (items.size() / 2) - 1; i >= 0; i--) {
-            percDown(i);
+    public void add(int item) {
+        if (size == items.length) {
+            items = Arrays.copyOf(items, 2 * items.length);
         }
+        items[size++] = item; // Add the new song to the end.
+        percUp(size - 1); // Adjust the position of the newly added song.
     }
 
-    // Builds the heap from an ArrayList of songs.
-    public void buildHeap(ArrayList<Song> sourceItems) {
-        this.items = new ArrayList<>(sourceItems);
+    // Builds the heap from the first count songs of an array.
+    public void buildHeap(int[] sourceItems, int count) {
+        this.items = Arrays.copyOf(sourceItems, Math.max(count, 4));
+        this.size = count;
         // Adjust the positions of the elements to form a valid max heap.
-        for (int i = (items.size() / 2) - 1; i >= 0; i--) {
+        for (int i = (size / 2) - 1; i >= 0; i--) {
             percDown(i);
         }
+        if (indexed) {
+            for (int i = 0; i < size; i++) {
+                store.setHeapPosition(items[i], category, i);
+            }
+        }
     }
 
     // Internal method to bubble down the element after deletion or during heap
     // building.
     private void percDown(int k) {
-        while (k < items.size() / 2) { // Node has at least one child.
+        int item = items[k];
+        long itemKey = key(item);
+        while (k < size / 2) { // Node has at least one child.
             int leftChild = 2 * k + 1;
             int rightChild = leftChild + 1;
 
             // Determine the larger of the two children.
             int largerChild = leftChild;
-            if (rightChild < items.size() && items.get(rightChild).compare(items.get(leftChild), category) > 0) {
-                largerChild = rightChild;
+            long largerKey = key(items[leftChild]);
+            if (rightChild < size) {
+                long rightKey = key(items[rightChild]);
+                if (rightKey > largerKey) {
+                    largerChild = rightChild;
+                    largerKey = rightKey;
+                }
             }
 
             // If the current node is larger or equal to the larger child, it's in the right
             // position.
-            if (items.get(k).compare(items.get(largerChild), category) >= 0) {
+            if (itemKey >= largerKey) {
                 break;
             }
 
-            // Swap with the larger child.
-            Song temp = items.get(k);
-            items.set(k, items.get(largerChild));
-            items.set(largerChild, temp);
+            // Move the larger child up.
+            place(k, items[largerChild]);
 
             // Move down to the child's position.
             k = largerChild;
         }
+        place(k, item);
     }
 
-    // Deletes the top song from the heap and returns it.
-    public Song delete() {
-        if (items.size() == 0) {
-            return null;
-        }
-        if (items.size() == 1) {
-            return items.remove(0);// If there's only one element, simply remove and return it.
+    // Deletes the top song from the heap and returns it, 0 if the heap is empty.
+    public int delete() {
+        if (size == 0) {
+            return 0;
         }
 
         // Save the top item.
-        Song hold = items.get(0);
+        int hold = items[0];
+        if (indexed) {
+            store.setHeapPosition(hold, category, -1);
+        }
         // Replace the top item with the last item.
-        items.set(0, items.remove(items.size() - 1));
+        items[0] = items[--size];
         // Reheapify the heap starting from the root.
-        percDown(0);
+        if (size > 0) {
+            percDown(0);
+        }
         return hold; // Return the saved top item.
     }
 
+    // Removes a song from anywhere in an indexed heap. Returns false if the song
+    // is not in the heap.
+    public boolean remove(int song) {
+        int index = store.getHeapPosition(song, category);
+        if (index < 0 || index >= size || items[index] != song) {
+            return false;
+        }
+        store.setHeapPosition(song, category, -1);
+
+        // Fill the hole with the last item and sift it in whichever direction it
+        // belongs.
+        int last = items[--size];
+        if (index < size) {
+            items[index] = last;
+            if (percUp(index) == index) {
+                percDown(index);
+            }
+        }
+        return true;
+    }
+
+    // Restores the heap order around a song of an indexed heap after its key
+    // changed. Returns false if the song is not in the heap.
+    public boolean update(int song) {
+        int index = store.getHeapPosition(song, category);
+        if (index < 0 || index >= size || items[index] != song) {
+            return false;
+        }
+        if (percUp(index) == index) {
+            percDown(index);
+        }
+        return true;
+    }
+
 }
@@ -1,32 +1,35 @@
-import java.util.ArrayList;
-import java.util.List;
+import java.util.Arrays;
 
 public class MinHeap {
-    private List<Song> items;
+    private int[] items;
+    private int size;
+    private final SongStore store;
     private int category;
 
-    public MinHeap(int category) {
-        items = new ArrayList<>();
+    public MinHeap(SongStore store, int category) {
+        items = new int[4];
+        size = 0;
+        this.store = store;
         this.category = category;
     }
 
-    public Song peek() {
-        if (items.isEmpty()) {
-            return new Song(-1,"null",-1,-1,-1,-1);
+    public int peek() {
+        if (size == 0) {
+            return 0;
         }
-        return items.get(0);
+        return items[0];
     }
 
     private void percUp() {
-        int k = items.size() - 1;
+        int k = size - 1;
         while (k > 0) {
             int p = (k - 1) / 2; // Parent index
-            Song item = items.get(k);
-            Song parent = items.get(p);
+            int item = items[k];
+            int parent = items[p];
 
-            if (item.compare(parent, category) < 0) { // Note the change here for MinHeap
-                items.set(k, parent);
-                items.set(p, item);
+            if (store.getKey(item, category) < store.getKey(parent, category)) { // Note the change here for MinHeap
+                items[k] = parent;
+                items[p] = item;
                 k = p;
             } else {
                 break;
@@ -34,66 +37,67 @@ public class MinHeap {
         }
     }
 
-    public void add(Song item) {
-        items.add(item);
+    public void add(int item) {
+        if (size == items.length) {
+            items = Arrays.copyOf(items, 2 * items.length);
+        }
+        items[size++] = item;
         percUp();
     }
 
-    public void buildHeap(ArrayList<Song> sourceItems) {
-        items = new ArrayList<>(sourceItems);
-        for (int i = (items.size() / 2) - 1; i >= 0; i--) {
+    public void buildHeap(int[] sourceItems, int count) {
+        items = Arrays.copyOf(sourceItems, Math.max(count, 4));
+        size = count;
+        for (int i = (size / 2) - 1; i >= 0; i--) {
             percDown(i);
         }
     }
 
     private void percDown(int k) {
-        while (k < items.size() / 2) {
+        while (k < size / 2) {
             int leftChild = 2 * k + 1;
             int rightChild = leftChild + 1;
 
             int smallerChild = leftChild; // Start with left child
-            if (rightChild < items.size() && items.get(rightChild).compare(items.get(leftChild), category) < 0) {
+            if (rightChild < size && store.getKey(items[rightChild], category) < store.getKey(items[leftChild], category)) {
                 smallerChild = rightChild;
             }
 
-            if (items.get(k).compare(items.get(smallerChild), category) <= 0) {
+            if (store.getKey(items[k], category) <= store.getKey(items[smallerChild], category)) {
                 break;
             }
 
-            Song temp = items.get(k);
-            items.set(k, items.get(smallerChild));
-            items.set(smallerChild, temp);
+            int temp = items[k];
+            items[k] = items[smallerChild];
+            items[smallerChild] = temp;
             k = smallerChild;
         }
     }
 
-    public Song delete() {
-        if (items.isEmpty()) {
-            return new Song(-1,"null",-1,-1,-1,-1);
-        }
-        if (items.size() == 1) {
-            return items.remove(0);
+    public int delete() {
+        if (size == 0) {
+            return 0;
         }
 
-        Song hold = items.get(0);
-        items.set(0, items.remove(items.size() - 1));
+        int hold = items[0];
+        items[0] = items[--size];
         percDown(0);
         return hold;
     }
 
     public int size() {
-        return items.size();
+        return size;
     }
 
     public boolean isEmpty() {
-        return items.isEmpty();
+        return size == 0;
     }
 
     public void clear() {
-        items.clear();
+        size = 0;
     }
 
-    public List<Song> getItems(){
-        return items;
+    public int[] getItems(){
+        return Arrays.copyOf(items, size);
     }
 }
@@ -1,73 +1,92 @@
-
 // Playlist class
 /**
  * Represents a playlist.
  * This class manages a collection of songs, categorized into different emotional states like heartache, roadtrip, and blissful.
  * It utilizes Max Heaps and AVL Trees to efficiently manage and retrieve songs based on their categories and scores.
  * Songs can be added or removed from the playlist, and the class provides methods to handle these operations and manage the song's category placements.
+ * Songs are referred to by their IDs, their attributes are kept in the song store.
+ * Small playlists do not create heaps and trees: they keep their songs sorted by each category in one
+ * primitive array and mark the songs not added to each category with a bit mask over those positions.
+ * A playlist is promoted to the heap and tree form once it grows beyond SMALL_PLAYLIST_LIMIT songs.
  * @author Yusuf Anil Yazici
  */
 
-import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Arrays;
 
 public class Playlist {
+    private static final int SMALL_PLAYLIST_LIMIT = 32; // Largest playlist kept in the small form, at most 64.
+    private static final int CATEGORIES = 3; // Number of song categories.
+
     private int playlistId; // Unique identifier for the playlist.
-    private HashMap<Integer, Song> songs; // HashMap to store songs, key is the song's ID.
+    private final SongStore store; // Store holding the attributes of the songs.
+
+    // Small form, null after promotion. Segment c of smallSongs holds the songs in
+    // ascending order of category c + 1, bit i of notAddedBits[c] is set while the
+    // song at position i of that segment is not added to the category.
+    private int[] smallSongs;
+    private int smallCapacity; // Length of each segment of smallSongs.
+    private int smallCount; // Number of songs in the small form.
+    private long[] notAddedBits;
+
+    // Heap and tree form, created on promotion.
+    private IntIntMap songs; // IDs of the songs in the playlist, each mapped to 1, checked before every change.
 
     // MaxHeaps for managing songs based on their scores in different categories.
     private MaxHeap heartacheHeap;
     private MaxHeap roadtripHeap;
     private MaxHeap blissfulHeap;
 
-    // Lists to track songs temporarily removed from the heaps.
-    private ArrayList<Song> removedHeartacheSongs = new ArrayList<>();
-    private ArrayList<Song> removedRoadtripSongs = new ArrayList<>();
-    private ArrayList<Song> removedBlissfulSongs = new ArrayList<>();
-
     // AVL Trees for managing songs not yet added to the heaps.
-    public AVLTree heartacheNotAddedSongs;
-    public AVLTree roadtripNotAddedSongs;
-    public AVLTree blissfulNotAddedSongs;
+    private AVLTree heartacheNotAddedSongs;
+    private AVLTree roadtripNotAddedSongs;
+    private AVLTree blissfulNotAddedSongs;
 
-    // Constructor to initialize the Playlist with an ID and its data structures.
-    public Playlist(int playlistId) {
+    // Constructor to initialize an empty Playlist with an ID in the small form.
+    public Playlist(int playlistId, SongStore store) {
         this.playlistId = playlistId;
-        this.songs = new HashMap<>();
-        this.heartacheHeap = new MaxHeap(1);
-        this.roadtripHeap = new MaxHeap(2);
-        this.blissfulHeap = new MaxHeap(3);
-
-        // Initialize AVL Trees for each category.
-        this.heartacheNotAddedSongs = new AVLTree(1);
-        this.roadtripNotAddedSongs = new AVLTree(2);
-        this.blissfulNotAddedSongs = new AVLTree(3);
-    }
-
-    // Getters for heaps to access the top-scoring songs
-    public MaxHeap getHeartacheHeap() {
-        return heartacheHeap;
-    }
-
-    public MaxHeap getRoadtripHeap() {
-        return roadtripHeap;
-    }
-
-    public MaxHeap getBlissfulHeap() {
-        return blissfulHeap;
+        this.store = store;
+        this.smallSongs = new int[0];
+        this.smallCapacity = 0;
+        this.smallCount = 0;
+        this.notAddedBits = new long[CATEGORIES];
     }
 
     public int getPlaylistId() {
         return playlistId;
     }
 
+    public int getSongCount() {
+        if (smallSongs != null) {
+            return smallCount;
+        }
+        return songs.size();
+    }
+
     // Adds a song to the playlist and updates its categorization in heaps and AVL
     // trees.
-    public void addSong(Song song, int playlistId) {
-        songs.put(song.getSongId(), song); // Assuming getSongId() returns the song's unique ID
-
-        song.setPlaylistId(playlistId);
+    public void addSong(int song, int playlistId) {
+        store.setPlaylistId(song, playlistId);
+
+        if (smallSongs != null) {
+            if (smallIndexOf(song, 1) >= 0) {
+                for (int i = 1; i <= 3; i++) {
+                    insertAvl(song, i);
+                }
+                return;
+            }
+            if (smallCount < SMALL_PLAYLIST_LIMIT) {
+                addSmallSong(song);
+                return;
+            }
+            promote();
+        } else if (songs.containsKey(song)) {
+            for (int i = 1; i <= 3; i++) {
+                insertAvl(song, i);
+            }
+            return;
+        }
 
+        songs.put(song, 1);
         heartacheHeap.add(song);
         roadtripHeap.add(song);
         blissfulHeap.add(song);
@@ -76,50 +95,236 @@ public class Playlist {
         }
     }
 
+    // Adds the initial songs of an empty playlist at once. Songs are sorted for
+    // each category, then either kept in the small form or used to build the
+    // heaps in linear time and bulk load the not added songs trees.
+    public void addSongs(int[] songIds, int count) {
+        for (int i = 0; i < count; i++) {
+            store.setPlaylistId(songIds[i], playlistId);
+            store.resetNotAdded(songIds[i]);
+        }
+
+        if (count <= SMALL_PLAYLIST_LIMIT) {
+            smallCapacity = count;
+            smallCount = count;
+            smallSongs = new int[CATEGORIES * count];
+            for (int category = 1; category <= CATEGORIES; category++) {
+                int from = (category - 1) * count;
+                System.arraycopy(songIds, 0, smallSongs, from, count);
+                store.sortByKey(smallSongs, from, from + count, category);
+                notAddedBits[category - 1] = lowBits(count);
+            }
+            return;
+        }
+
+        smallSongs = null;
+        notAddedBits = null;
+        createLargeForm(count);
+        int[] sorted = Arrays.copyOf(songIds, count);
+        for (int i = 0; i < count; i++) {
+            songs.put(sorted[i], 1);
+        }
+
+        heartacheHeap.buildHeap(sorted, count);
+        roadtripHeap.buildHeap(sorted, count);
+        blissfulHeap.buildHeap(sorted, count);
+
+        store.sortByKey(sorted, 0, count, 1);
+        heartacheNotAddedSongs.buildFromSorted(sorted, 0, count);
+        store.sortByKey(sorted, 0, count, 2);
+        roadtripNotAddedSongs.buildFromSorted(sorted, 0, count);
+        store.sortByKey(sorted, 0, count, 3);
+        blissfulNotAddedSongs.buildFromSorted(sorted, 0, count);
+    }
+
     // Removes a song from the playlist and updates its categorization.
-    public void removeSong(Song song) {
-        song.setPlaylistId(-1);
-        song.resetNotAdded();
+    public void removeSong(int song) {
+        store.setPlaylistId(song, -1);
+        store.resetNotAdded(song);
+
+        if (smallSongs != null) {
+            removeSmallSong(song);
+            return;
+        }
+        if (!songs.containsKey(song)) {
+            return;
+        }
+
         for (int i = 1; i <= 3; i++) {
             deleteAvl(song, i);
         }
+        heartacheHeap.remove(song);
+        roadtripHeap.remove(song);
+        blissfulHeap.remove(song);
 
-        songs.remove(song.getSongId());
+        songs.remove(song);
+    }
 
+    // Creates the empty heaps, trees and song map of the large form.
+    private void createLargeForm(int expectedSongs) {
+        songs = new IntIntMap(expectedSongs);
+        heartacheHeap = new MaxHeap(store, 1, true);
+        roadtripHeap = new MaxHeap(store, 2, true);
+        blissfulHeap = new MaxHeap(store, 3, true);
+        heartacheNotAddedSongs = new AVLTree(store, 1);
+        roadtripNotAddedSongs = new AVLTree(store, 2);
+        blissfulNotAddedSongs = new AVLTree(store, 3);
     }
 
+    // Moves the songs of the small form into the heaps and trees of the large form.
+    private void promote() {
+        createLargeForm(smallCount + 1);
+        int[] notAdded = new int[smallCount];
+        for (int category = 1; category <= CATEGORIES; category++) {
+            int from = (category - 1) * smallCapacity;
+            MaxHeap heap = getHeap(category);
+            heap.buildHeap(Arrays.copyOfRange(smallSongs, from, from + smallCount), smallCount);
+
+            // The not added songs keep their ascending order.
+            int notAddedCount = 0;
+            long bits = notAddedBits[category - 1];
+            for (int i = 0; i < smallCount; i++) {
+                if ((bits & (1L << i)) != 0) {
+                    notAdded[notAddedCount++] = smallSongs[from + i];
+                }
+            }
+            getNotAddedSongs(category).buildFromSorted(notAdded, 0, notAddedCount);
+        }
+        for (int i = 0; i < smallCount; i++) {
+            songs.put(smallSongs[i], 1);
+        }
+        smallSongs = null;
+        notAddedBits = null;
+    }
 
-    // Peeks at the top-scoring song in a specific category.
-    public Song peekSongInCategory(String category) {
+    // Returns the heap of a category in the large form.
+    private MaxHeap getHeap(int category) {
         switch (category) {
-            case "Heartache":
-                return heartacheHeap.isEmpty() ? null : heartacheHeap.peek();
-            case "Roadtrip":
-                return roadtripHeap.isEmpty() ? null : roadtripHeap.peek();
-            case "Blissful":
-                return blissfulHeap.isEmpty() ? null : blissfulHeap.peek();
+            case 1:
+                return heartacheHeap;
+            case 2:
+                return roadtripHeap;
+            case 3:
+                return blissfulHeap;
             default:
                 throw new IllegalArgumentException("Invalid category");
         }
     }
 
+    // Returns the not added songs tree of a category in the large form.
+    private AVLTree getNotAddedSongs(int category) {
+        switch (category) {
+            case 1:
+                return heartacheNotAddedSongs;
+            case 2:
+                return roadtripNotAddedSongs;
+            case 3:
+                return blissfulNotAddedSongs;
+            default:
+                throw new IllegalArgumentException("Invalid category");
+        }
+    }
+
+    // Returns a mask of the lowest count bits.
+    private static long lowBits(int count) {
+        return count == 64 ? -1L : (1L << count) - 1;
+    }
+
+    // Returns the position of a song in the small form segment of a category, -1
+    // if the song is not in the playlist.
+    private int smallIndexOf(int song, int category) {
+        int from = (category - 1) * smallCapacity;
+        for (int i = 0; i < smallCount; i++) {
+            if (smallSongs[from + i] == song) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    // Inserts a song into every segment of the small form at its sorted position,
+    // marked as not added to any category.
+    private void addSmallSong(int song) {
+        if (smallCount == smallCapacity) {
+            int capacity = Math.min(SMALL_PLAYLIST_LIMIT, Math.max(4, 2 * smallCapacity));
+            int[] grown = new int[CATEGORIES * capacity];
+            for (int category = 0; category < CATEGORIES; category++) {
+                System.arraycopy(smallSongs, category * smallCapacity, grown, category * capacity, smallCount);
+            }
+            smallSongs = grown;
+            smallCapacity = capacity;
+        }
+
+        for (int category = 1; category <= CATEGORIES; category++) {
+            int from = (category - 1) * smallCapacity;
+            long songKey = store.getKey(song, category);
+            int position = smallCount;
+            while (position > 0 && store.getKey(smallSongs[from + position - 1], category) > songKey) {
+                smallSongs[from + position] = smallSongs[from + position - 1];
+                position--;
+            }
+            smallSongs[from + position] = song;
+
+            long bits = notAddedBits[category - 1];
+            long low = bits & lowBits(position);
+            notAddedBits[category - 1] = low | ((bits ^ low) << 1) | (1L << position);
+            store.setNotAdded(song, category - 1, true);
+        }
+        smallCount++;
+    }
+
+    // Removes a song from every segment of the small form if it is there.
+    private void removeSmallSong(int song) {
+        if (smallIndexOf(song, 1) < 0) {
+            return;
+        }
+        for (int category = 1; category <= CATEGORIES; category++) {
+            int from = (category - 1) * smallCapacity;
+            int position = smallIndexOf(song, category);
+            System.arraycopy(smallSongs, from + position + 1, smallSongs, from + position, smallCount - position - 1);
+
+            long bits = notAddedBits[category - 1];
+            long low = bits & lowBits(position);
+            notAddedBits[category - 1] = low | ((bits >>> (position + 1)) << position);
+        }
+        smallCount--;
+    }
+
+    // Marks a song of the small form as added or not added to a category.
+    private void setSmallNotAdded(int song, int category, boolean notAdded) {
+        int position = smallIndexOf(song, category);
+        if (position < 0) {
+            return;
+        }
+        if (notAdded) {
+            notAddedBits[category - 1] |= 1L << position;
+        } else {
+            notAddedBits[category - 1] &= ~(1L << position);
+        }
+        store.setNotAdded(song, category - 1, notAdded);
+    }
+
     // Inserts a song into not added songs AVL tree based on its category.
-    public void insertAvl(Song song, int category) {
+    public void insertAvl(int song, int category) {
+        if (smallSongs != null) {
+            setSmallNotAdded(song, category, true);
+            return;
+        }
 
         switch (category) {
             case 1:
                 heartacheNotAddedSongs.insert(song);
-                song.setNotAdded(category - 1, true);
+                store.setNotAdded(song, category - 1, true);
                 break;
 
             case 2:
                 roadtripNotAddedSongs.insert(song);
-                song.setNotAdded(category - 1, true);
+                store.setNotAdded(song, category - 1, true);
                 break;
 
             case 3:
                 blissfulNotAddedSongs.insert(song);
-                song.setNotAdded(category - 1, true);
+                store.setNotAdded(song, category - 1, true);
                 break;
 
             default:
@@ -128,22 +333,26 @@ public class Playlist {
     }
 
     // Deletes a song from not added songs AVL tree based on its category.
-    public void deleteAvl(Song song, int category) {
+    public void deleteAvl(int song, int category) {
+        if (smallSongs != null) {
+            setSmallNotAdded(song, category, false);
+            return;
+        }
 
         switch (category) {
             case 1:
                 heartacheNotAddedSongs.delete(song);
-                song.setNotAdded(category - 1, false);
+                store.setNotAdded(song, category - 1, false);
                 break;
 
             case 2:
                 roadtripNotAddedSongs.delete(song);
-                song.setNotAdded(category - 1, false);
+                store.setNotAdded(song, category - 1, false);
                 break;
 
             case 3:
                 blissfulNotAddedSongs.delete(song);
-                song.setNotAdded(category - 1, false);
+                store.setNotAdded(song, category - 1, false);
                 break;
 
             default:
@@ -153,7 +362,14 @@ public class Playlist {
 
     // Gets the maximum scoring song from not added songs AVL tree for a specific
     // category.
-    public Song getMaxAvl(int category) {
+    public int getMaxAvl(int category) {
+        if (smallSongs != null) {
+            long bits = notAddedBits[category - 1];
+            if (bits == 0) {
+                return 0;
+            }
+            return smallSongs[(category - 1) * smallCapacity + 63 - Long.numberOfLeadingZeros(bits)];
+        }
         switch (category) {
             case 1:
                 return heartacheNotAddedSongs.getMaxSong();
@@ -167,79 +383,28 @@ public class Playlist {
         return heartacheNotAddedSongs.getMaxSong();
     }
 
-    // Gets the minimum scoring song from not added songs AVL tree for a specific
-    // category.
-    public Song getMinAvl(int category) {
-        switch (category) {
-            case 1:
-                return heartacheNotAddedSongs.getMinSong();
-
-            case 2:
-                return roadtripNotAddedSongs.getMinSong();
-
-            case 3:
-                return blissfulNotAddedSongs.getMinSong();
+    // Copies up to k top-scoring songs of a specific category in descending
+    // order into the target starting at offset, without changing the heap.
+    // Returns the number of songs copied.
+    public int copyTopSongsInCategory(int categoryNumber, int k, int[] target, int offset) {
+        if (smallSongs != null) {
+            int count = Math.min(k, smallCount);
+            int last = (categoryNumber - 1) * smallCapacity + smallCount - 1;
+            for (int i = 0; i < count; i++) {
+                target[offset + i] = smallSongs[last - i];
+            }
+            return count;
         }
-        return heartacheNotAddedSongs.getMaxSong();
-    }
-
-    // Removes the top song from a specific category and tracks it.
-    public Song removeTopSongInCategory(int categoryNumber) {
-        Song removedSong = null;
         switch (categoryNumber) {
             case 1:
-                removedSong = heartacheHeap.delete();
-                removedHeartacheSongs.add(removedSong);
-                break;
+                return heartacheHeap.copyTop(k, target, offset);
             case 2:
-                removedSong = roadtripHeap.delete();
-                removedRoadtripSongs.add(removedSong);
-                break;
+                return roadtripHeap.copyTop(k, target, offset);
             case 3:
-                removedSong = blissfulHeap.delete();
-                removedBlissfulSongs.add(removedSong);
-                break;
-        }
-        return removedSong;
-    }
-
-    // Restores removed songs back to their respective heaps.
-    public void restoreRemovedSongs(int categoryNumber) {
-        ArrayList<Song> removedSongs = new ArrayList<>();
-        MaxHeap categoryHeap = new MaxHeap(categoryNumber);
-        switch (categoryNumber) {
-            case 1:
-                removedSongs = removedHeartacheSongs;
-                categoryHeap = heartacheHeap;
-                break;
-            case 2:
-                removedSongs = removedRoadtripSongs;
-                categoryHeap = roadtripHeap;
-                break;
-            case 3:
-                removedSongs = removedBlissfulSongs;
-                categoryHeap = blissfulHeap;
-                break;
-
-        }
-
-        for (Song song : removedSongs) {
-            categoryHeap.add(song);
-        }
-        removedSongs.clear();
-    }
-
-    // Checks if a specific category is empty in the playlist.
-    public boolean isCategoryEmpty(int categoryNumber) {
-        switch (categoryNumber) {
-            case 1:
-                return heartacheHeap.isEmpty();
-            case 2:
-                return roadtripHeap.isEmpty();
-            case 3:
-                return blissfulHeap.isEmpty();
+                return blissfulHeap.copyTop(k, target, offset);
+            default:
+                throw new IllegalArgumentException("Invalid category");
         }
-        return false;
     }
 
 }
@@ -6,13 +6,19 @@
  * and handles various operations like adding, removing, and querying songs.
  * It demonstrates file handling, object-oriented programming, and use of custom data structures.
  * The class reads song data and test cases from files, then performs operations based on the test cases.
+ * Test cases can be given in the text format or as a binary event log created by EventLogConverter.
  * It utilizes the EpicBlend class for managing playlists.
+ * Song and playlist IDs in the files can be sparse 64-bit values other than 0, which the output
+ * uses for "no song". Playlists get dense IDs in the order they are read, and the IDs of every
+ * event are translated to the dense IDs with primitive hash maps, so the rest of the program
+ * works on arrays indexed by dense IDs.
  * @author Yusuf Anil Yazici
  */
 
-import java.io.BufferedReader;
-import java.io.FileReader;
 import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
 
 public class Project3 {
     public static void main(String[] args) {
@@ -27,10 +33,10 @@ public class Project3 {
 
         try {
             // Reads and stores all songs from the file.
-            Song[] allSongs = readSongFile(songFilePath);
+            SongStore store = SongCatalogReader.read(songFilePath);
 
             // Processes the test case file using the read songs.
-            processTestCaseFile(testCaseFilePath, allSongs);
+            processTestCaseFile(testCaseFilePath, store);
 
         } catch (Exception e) {
             // Print stack trace in case of an exception.
@@ -41,117 +47,98 @@ public class Project3 {
         }
     }
 
-    // Reads the song file and returns an array of Song objects.
-    private static Song[] readSongFile(String songFilePath) throws IOException {
-        BufferedReader reader = new BufferedReader(new FileReader(songFilePath));
-        int numberOfSongs = Integer.parseInt(reader.readLine()); // Reads the first line for the number of songs.
-        Song[] allSongs = new Song[numberOfSongs]; // Initializes an array for storing songs.
-
-        String line;
-        int index = 0;
-        // Reads each line and creates a Song object.
-        while ((line = reader.readLine()) != null && index < numberOfSongs) {
-            String[] parts = line.split(" ");
-            int songId = Integer.parseInt(parts[0]);
-            String songName = parts[1];
-            int playCount = Integer.parseInt(parts[2]);
-            int heartacheScore = Integer.parseInt(parts[3]);
-            int roadtripScore = Integer.parseInt(parts[4]);
-            int blissfulScore = Integer.parseInt(parts[5]);
-
-            allSongs[index++] = new Song(songId, songName, playCount, heartacheScore, roadtripScore, blissfulScore);
-        }
-
-        reader.close();
-        return allSongs;
-    }
-
     // Processes the test case file and performs operations based on its content.
-    private static void processTestCaseFile(String testCaseFilePath, Song[] allSongs) throws IOException {
-        BufferedReader reader = new BufferedReader(new FileReader(testCaseFilePath));
-        String line;
-
-        // Reads the first line for category limits and stores them.
-        line = getNextLine(reader);
-        String[] limits = line.split("\\s+");
-        int playlistCategoryLimit = Integer.parseInt(limits[0]);
-        int heartacheLimit = Integer.parseInt(limits[1]);
-        int roadtripLimit = Integer.parseInt(limits[2]);
-        int blissfulLimit = Integer.parseInt(limits[3]);
-
-        // Reads the number of playlists and initializes EpicBlend with limits and
-        // number of playlists.
-        int numPlaylists = Integer.parseInt(getNextLine(reader));
-        EpicBlend epicBlend = new EpicBlend(playlistCategoryLimit, heartacheLimit, roadtripLimit, blissfulLimit,
-                numPlaylists);
-
-        Playlist[] playlistsArray = new Playlist[numPlaylists]; // Creates an array for storing Playlists.
-
-        // Reads each playlist and its songs, adding them to the playlists array.
-       // Reads each playlist and its songs, adding them to the playlists array.
-        for (int i = 0; i < numPlaylists; i++) {
-            line = getNextLine(reader);
-            String[] playlistInfo = line.split("\\s+");
-            int playlistId = Integer.parseInt(playlistInfo[0]);
-            int numSongs = Integer.parseInt(playlistInfo[1]);
-            Playlist playlist = new Playlist(playlistId);
-
-            line = getNextLine(reader);
-            if (!line.isEmpty()) {
-                String[] songIds = line.split("\\s+");
+    private static void processTestCaseFile(String testCaseFilePath, SongStore store) throws IOException {
+        try (FileChannel channel = FileChannel.open(Paths.get(testCaseFilePath), StandardOpenOption.READ)) {
+            EventSource reader = EventSource.open(channel);
+
+            // Reads the first line for category limits and stores them.
+            int playlistCategoryLimit = reader.readInt();
+            int heartacheLimit = reader.readInt();
+            int roadtripLimit = reader.readInt();
+            int blissfulLimit = reader.readInt();
+
+            // Reads the number of playlists and initializes EpicBlend with limits and
+            // number of playlists.
+            int numPlaylists = reader.readInt();
+            EpicBlend epicBlend = new EpicBlend(store, playlistCategoryLimit, heartacheLimit, roadtripLimit,
+                    blissfulLimit, numPlaylists);
+
+            Playlist[] playlistsArray = new Playlist[numPlaylists]; // Creates an array for storing Playlists.
+            LongIntMap playlistIds = new LongIntMap(numPlaylists); // Dense ID of every external playlist ID.
+
+            // Reads each playlist and its songs, adding them to the playlists array.
+            int[] songIds = new int[16]; // Reused buffer for the songs of a playlist.
+            for (int i = 0; i < numPlaylists; i++) {
+                long externalPlaylistId = reader.readId();
+                if (externalPlaylistId == 0) {
+                    throw new IOException("Reserved playlist ID: 0"); // 0 is the "none" ID, as for songs.
+                }
+                if (playlistIds.containsKey(externalPlaylistId)) {
+                    throw new IOException("Duplicate playlist ID: " + externalPlaylistId);
+                }
+                int playlistId = i + 1;
+                playlistIds.put(externalPlaylistId, playlistId);
+                int numSongs = reader.readInt();
+                Playlist playlist = new Playlist(playlistId, store);
+
+                if (songIds.length < numSongs) {
+                    songIds = new int[Math.max(numSongs, 2 * songIds.length)];
+                }
                 for (int j = 0; j < numSongs; j++) {
-                    int songId = Integer.parseInt(songIds[j]);
-                    Song song = allSongs[songId - 1];
-                    playlist.addSong(song, playlist.getPlaylistId());
+                    songIds[j] = toSongId(store, reader.readId());
                 }
-            }
+                playlist.addSongs(songIds, numSongs);
 
-            playlistsArray[i] = playlist;
-        }
-        EpicBlend.playlists = playlistsArray;
-
-        epicBlend.createPlaylists(playlistsArray);
-
-        // Processes each event (add, remove, ask) based on the input file.
-        int numEvents = Integer.parseInt(getNextLine(reader));
-        for (int i = 0; i < numEvents; i++) {
-            line = getNextLine(reader);
-            String[] eventParts = line.split("\\s+");
-            String eventType = eventParts[0];
-
-            // Handles adding a song to a playlist.
-            if ("ADD".equals(eventType)) {
-                int songId = Integer.parseInt(eventParts[1]);
-                int playlistId = Integer.parseInt(eventParts[2]);
-                Song song = allSongs[songId - 1];
-                Playlist playlist = playlistsArray[playlistId - 1];
-
-                playlist.addSong(song, playlistId);
-                epicBlend.addSongAndUpdatePlaylists(song, playlist);
+                playlistsArray[i] = playlist;
             }
-            // Handles removing a song from a playlist.
-            else if ("REM".equals(eventType)) {
-                int songId = Integer.parseInt(eventParts[1]);
-                Song song = allSongs[songId - 1];
-                int playlistId = Integer.parseInt(eventParts[2]);
-                Playlist playlist = playlistsArray[playlistId - 1];
-                epicBlend.removeSongAndUpdatePlaylists(song, playlist);
-            }
-            // Handles printing the current state of the EpicBlend.
-            else if ("ASK".equals(eventType)) {
-                epicBlend.printEpicBlend();
+            EpicBlend.playlists = playlistsArray;
+
+            epicBlend.createPlaylists(playlistsArray);
+
+            // Processes each event (add, remove, ask) based on the input file.
+            int numEvents = reader.readInt();
+            for (int i = 0; i < numEvents; i++) {
+                reader.nextEvent();
+
+                // Handles adding a song to a playlist.
+                if (reader.opcode == EventSource.ADD) {
+                    int songId = toSongId(store, reader.songId);
+                    int playlistId = toPlaylistId(playlistIds, reader.playlistId);
+                    Playlist playlist = playlistsArray[playlistId - 1];
+
+                    playlist.addSong(songId, playlistId);
+                    epicBlend.addSongAndUpdatePlaylists(songId, playlist);
+                }
+                // Handles removing a song from a playlist.
+                else if (reader.opcode == EventSource.REM) {
+                    int songId = toSongId(store, reader.songId);
+                    Playlist playlist = playlistsArray[toPlaylistId(playlistIds, reader.playlistId) - 1];
+                    epicBlend.removeSongAndUpdatePlaylists(songId, playlist);
+                }
+                // Handles printing the current state of the EpicBlend.
+                else if (reader.opcode == EventSource.ASK) {
+                    epicBlend.printEpicBlend();
+                }
             }
         }
+    }
 
-        reader.close();
+    // Translates an external song ID to its song ID.
+    private static int toSongId(SongStore store, long externalId) throws IOException {
+        int songId = store.getSongId(externalId);
+        if (songId == 0) {
+            throw new IOException("Unknown song ID: " + externalId);
+        }
+        return songId;
     }
 
-    // Gets the next line using BufferedReader.
-    private static String getNextLine(BufferedReader reader) throws IOException {
-        String line;
-        while ((line = reader.readLine()) != null) {
-            return line;
+    // Translates an external playlist ID to its dense playlist ID.
+    private static int toPlaylistId(LongIntMap playlistIds, long externalId) throws IOException {
+        int playlistId = playlistIds.get(externalId, 0);
+        if (playlistId == 0) {
+            throw new IOException("Unknown playlist ID: " + externalId);
         }
-        throw new IOException("No non-empty lines found.");
+        return playlistId;
     }
-}
+}
\ No newline at end of file
@@ -0,0 +1,173 @@
+// SongCatalogReader class
+/**
+ * Loads the song catalog file into a song store.
+ * The first line holds the number of songs and every following line holds the ID, name,
+ * play count and the heartache, roadtrip and blissful scores of one song.
+ * The file is parsed directly from bytes, the only object created per song is its name.
+ * Large catalogs are split into chunks aligned to line boundaries which are parsed in
+ * parallel on a fork/join pool. A first pass counts the lines of every chunk so that each
+ * chunk knows how many of the declared songs come before it, and a second pass parses the
+ * chunks and writes the songs directly into the store.
+ * Songs get dense IDs in the order of their lines, the ID in the file is kept as the
+ * external ID of the song.
+ */
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+public class SongCatalogReader {
+    private static final long CHUNK_SIZE = 8L << 20; // Target size of a chunk in bytes.
+    private static final int CHUNK_BUFFER_SIZE = 256 << 10; // Read buffer size for each chunk.
+
+    private final FileChannel channel; // Channel of the song file.
+    private final SongStore store; // Store the songs are written into.
+    private final long[] chunkStarts; // File positions of the chunks, followed by the end of the file.
+    private final int[] firstSongIndex; // Index of the first song of every chunk.
+
+    // Constructor that splits the song lines of the file into chunks.
+    private SongCatalogReader(FileChannel channel, int numberOfSongs, long dataStart) throws IOException {
+        this.channel = channel;
+        this.store = new SongStore(numberOfSongs);
+
+        long fileSize = channel.size();
+        int chunkCount = (int) Math.max(1, (fileSize - dataStart + CHUNK_SIZE - 1) / CHUNK_SIZE);
+        this.chunkStarts = new long[chunkCount + 1];
+        this.firstSongIndex = new int[chunkCount];
+
+        chunkStarts[0] = dataStart;
+        for (int i = 1; i < chunkCount; i++) {
+            long start = Math.max(chunkStarts[i - 1], alignToLineStart(dataStart + i * CHUNK_SIZE, fileSize));
+            chunkStarts[i] = start;
+        }
+        chunkStarts[chunkCount] = fileSize;
+    }
+
+    // Reads the song file and returns a store holding all songs.
+    public static SongStore read(String songFilePath) throws IOException {
+        try (FileChannel channel = FileChannel.open(Paths.get(songFilePath), StandardOpenOption.READ)) {
+            ByteReader header = new ByteReader(channel, 0, channel.size(), CHUNK_BUFFER_SIZE);
+            int numberOfSongs = header.readInt(); // Reads the first line for the number of songs.
+
+            SongCatalogReader catalog = new SongCatalogReader(channel, numberOfSongs, header.position());
+            catalog.countChunkLines();
+            catalog.parseChunks();
+            int invalid = catalog.store.indexExternalIds();
+            if (invalid != 0) {
+                long externalId = catalog.store.getExternalId(invalid);
+                throw new IOException((externalId == 0 ? "Reserved song ID: " : "Duplicate song ID: ") + externalId);
+            }
+            catalog.store.rankSongNames();
+            return catalog.store;
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    // Moves a position forward to the start of the next line.
+    private long alignToLineStart(long position, long fileSize) throws IOException {
+        ByteBuffer probe = ByteBuffer.allocate(4096);
+        long current = position - 1; // The byte before a line start is a newline.
+        while (current < fileSize) {
+            probe.clear();
+            int read = channel.read(probe, current);
+            if (read <= 0) {
+                break;
+            }
+            for (int i = 0; i < read; i++) {
+                if (probe.get(i) == '\n') {
+                    return current + i + 1;
+                }
+            }
+            current += read;
+        }
+        return fileSize;
+    }
+
+    // Counts the song lines of every chunk in parallel and computes the index of
+    // the first song of every chunk.
+    private void countChunkLines() {
+        int chunkCount = firstSongIndex.length;
+        int[] lineCounts = new int[chunkCount];
+        ForkJoinPool.commonPool().invoke(new ChunkTask(0, chunkCount, (chunk) -> {
+            lineCounts[chunk] = newChunkReader(chunk).countLines();
+        }));
+
+        int index = 0;
+        for (int i = 0; i < chunkCount; i++) {
+            firstSongIndex[i] = index;
+            index = (int) Math.min(store.getNumberOfSongs(), (long) index + lineCounts[i]);
+        }
+    }
+
+    // Parses every chunk in parallel into the song store.
+    private void parseChunks() {
+        ForkJoinPool.commonPool().invoke(new ChunkTask(0, firstSongIndex.length, this::parseChunk));
+    }
+
+    // Parses the song lines of a chunk into the song store.
+    private void parseChunk(int chunk) throws IOException {
+        ByteReader reader = newChunkReader(chunk);
+        int index = firstSongIndex[chunk];
+        while (index < store.getNumberOfSongs() && reader.hasMoreTokens()) {
+            index++;
+            readSong(reader, index);
+        }
+    }
+
+    // Creates a reader for the byte range of a chunk.
+    private ByteReader newChunkReader(int chunk) {
+        return new ByteReader(channel, chunkStarts[chunk], chunkStarts[chunk + 1], CHUNK_BUFFER_SIZE);
+    }
+
+    // Reads the fields of a single song line into the song store under the given
+    // song ID.
+    private void readSong(ByteReader reader, int songId) throws IOException {
+        long externalId = reader.readLong();
+        String songName = reader.readToken();
+        int playCount = reader.readInt();
+        int heartacheScore = reader.readInt();
+        int roadtripScore = reader.readInt();
+        int blissfulScore = reader.readInt();
+        store.setSong(songId, externalId, songName, playCount, heartacheScore, roadtripScore, blissfulScore);
+    }
+
+    // Work done on a single chunk.
+    private interface ChunkWork {
+        void run(int chunk) throws IOException;
+    }
+
+    // Fork/join task that runs the chunk work on a range of chunks by splitting
+    // the range in halves.
+    private static class ChunkTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final int from; // First chunk of the range.
+        private final int to; // End of the range, exclusive.
+        private final ChunkWork work; // Work to run on every chunk.
+
+        ChunkTask(int from, int to, ChunkWork work) {
+            this.from = from;
+            this.to = to;
+            this.work = work;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from == 1) {
+                try {
+                    work.run(from);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(new ChunkTask(from, middle, work), new ChunkTask(middle, to, work));
+        }
+    }
+}
@@ -0,0 +1,334 @@
+// SongStore class
+/**
+ * Stores the attributes of all songs in columns of primitive arrays indexed by song ID.
+ * A song is represented by its ID everywhere else, heaps and trees only hold song IDs and
+ * compare them through this store. Song IDs start at 1, the ID 0 stands for "no song".
+ * Once all songs are loaded, every song gets a rank by name and a 64-bit sort key for the
+ * play count and each category: the score in the high 32 bits and the inverted name rank
+ * in the low 32 bits. Comparing two keys gives the same order as comparing the scores and
+ * then the names, so every comparison is a single long comparison. The keys of a song are
+ * stored next to each other. The names are dropped after ranking.
+ * Per-category state of a song is kept in separate elements, so the categories can be
+ * built concurrently without writing to shared bytes.
+ * Song IDs are dense internal indexes given in the order of the catalog. The IDs used in the
+ * input and output files are sparse 64-bit external IDs, translated with a primitive hash.
+ */
+public class SongStore {
+    private static final int KEYS_PER_SONG = 4; // Play count and the three category scores.
+    private static final int CATEGORIES = 3; // Number of song categories.
+    private static final int HANDLE_SLOTS = 2 * CATEGORIES; // Node handle slots kept for every song.
+
+    // Handle slots of the blend category trees and of the contribution trackers,
+    // each followed by one slot per category.
+    public static final int CATEGORY_TREE_HANDLES = 0;
+    public static final int CONTRIBUTION_HANDLES = CATEGORIES;
+    private static final int INSERTION_SORT_THRESHOLD = 16; // Runs shorter than this are insertion sorted.
+
+    private final int numberOfSongs; // Number of songs in the store.
+    private final long[] externalIds; // External ID of every song, 0 for the ID 0.
+    private final LongIntMap songIdsByExternalId; // Song ID of every external ID.
+    private String[] songNames; // Names of the songs, only kept until the songs are ranked.
+    private final long[] keys; // Sort keys for the play count and the three categories of every song.
+    private final int[] playlistIds; // ID of the playlist each song belongs to.
+    private final boolean[] notAdded; // Whether each song is not added to each category, one flag per category.
+    private final byte[] blendCounts; // Number of blend categories that currently contain each song.
+    private final int[] heapPositions; // Position + 1 of each song in its playlist's heap of each category, 0 if absent.
+    private final int[] nodeHandles; // Node or heap position of each song in the structures of each handle slot.
+
+    // Constructor to create a store with room for the given number of songs.
+    public SongStore(int numberOfSongs) {
+        this.numberOfSongs = numberOfSongs;
+        this.songNames = new String[numberOfSongs + 1];
+        this.externalIds = new long[numberOfSongs + 1];
+        this.songIdsByExternalId = new LongIntMap(numberOfSongs);
+        this.keys = new long[(numberOfSongs + 1) * KEYS_PER_SONG];
+        this.playlistIds = new int[numberOfSongs + 1];
+        this.notAdded = new boolean[(numberOfSongs + 1) * CATEGORIES];
+        this.blendCounts = new byte[numberOfSongs + 1];
+        this.heapPositions = new int[(numberOfSongs + 1) * CATEGORIES];
+        this.nodeHandles = new int[(numberOfSongs + 1) * HANDLE_SLOTS];
+    }
+
+    // Sets the attributes of the song with the given ID. The sort keys are only
+    // complete after rankSongNames() is called and the external ID can only be
+    // looked up after indexExternalIds() is called.
+    public void setSong(int songId, long externalId, String songName, int playCount, int heartacheScore,
+            int roadtripScore, int blissfulScore) {
+        externalIds[songId] = externalId;
+        songNames[songId] = songName;
+        int base = songId * KEYS_PER_SONG;
+        keys[base] = (long) playCount << 32;
+        keys[base + 1] = (long) heartacheScore << 32;
+        keys[base + 2] = (long) roadtripScore << 32;
+        keys[base + 3] = (long) blissfulScore << 32;
+        resetNotAdded(songId);
+    }
+
+    // Builds the translation from external IDs to song IDs. Returns a song whose
+    // external ID is 0, which the output uses for "no song", or is already used
+    // by another song. Returns 0 if all external IDs are valid. Must be called
+    // before the names are dropped, songs that were never set are skipped.
+    public int indexExternalIds() {
+        for (int songId = 1; songId <= numberOfSongs; songId++) {
+            if (songNames[songId] == null) {
+                continue;
+            }
+            if (externalIds[songId] == 0 || songIdsByExternalId.containsKey(externalIds[songId])) {
+                return songId;
+            }
+            songIdsByExternalId.put(externalIds[songId], songId);
+        }
+        return 0;
+    }
+
+    // Ranks all songs by name and completes their sort keys. Songs with equal
+    // names get the same rank, the smaller name gets the greater inverted rank.
+    public void rankSongNames() {
+        int[] order = new int[numberOfSongs];
+        int count = 0;
+        for (int songId = 1; songId <= numberOfSongs; songId++) {
+            if (songNames[songId] != null) {
+                order[count++] = songId;
+            }
+        }
+        sortByName(order, new int[count], 0, count);
+
+        int rank = 0;
+        for (int i = 0; i < count; i++) {
+            if (i > 0 && !songNames[order[i]].equals(songNames[order[i - 1]])) {
+                rank++;
+            }
+            long invertedRank = numberOfSongs - rank;
+            int base = order[i] * KEYS_PER_SONG;
+            for (int category = 0; category < KEYS_PER_SONG; category++) {
+                keys[base + category] |= invertedRank;
+            }
+        }
+        songNames = null; // The names are not needed anymore.
+    }
+
+    // Sorts the song IDs in [from, to) by name with a merge sort.
+    private void sortByName(int[] ids, int[] buffer, int from, int to) {
+        if (to - from < INSERTION_SORT_THRESHOLD) {
+            for (int i = from + 1; i < to; i++) {
+                int id = ids[i];
+                int j = i - 1;
+                while (j >= from && songNames[ids[j]].compareTo(songNames[id]) > 0) {
+                    ids[j + 1] = ids[j];
+                    j--;
+                }
+                ids[j + 1] = id;
+            }
+            return;
+        }
+
+        int middle = (from + to) >>> 1;
+        sortByName(ids, buffer, from, middle);
+        sortByName(ids, buffer, middle, to);
+        if (songNames[ids[middle - 1]].compareTo(songNames[ids[middle]]) <= 0) {
+            return; // The halves are already in order.
+        }
+
+        System.arraycopy(ids, from, buffer, from, to - from);
+        int left = from;
+        int right = middle;
+        for (int i = from; i < to; i++) {
+            if (right >= to || (left < middle && songNames[buffer[left]].compareTo(songNames[buffer[right]]) <= 0)) {
+                ids[i] = buffer[left++];
+            } else {
+                ids[i] = buffer[right++];
+            }
+        }
+    }
+
+    // Sorts the first count song IDs of an array in ascending order of their sort
+    // keys for a category with a stable merge sort.
+    public void sortByKey(int[] ids, int count, int category) {
+        sortByKey(ids, 0, count, category);
+    }
+
+    // Sorts the song IDs in [from, to) of an array in ascending order of their
+    // sort keys for a category with a stable merge sort.
+    public void sortByKey(int[] ids, int from, int to, int category) {
+        int[] buffer = (to - from < INSERTION_SORT_THRESHOLD) ? null : new int[to];
+        sortByKey(ids, buffer, from, to, category);
+    }
+
+    // Sorts the song IDs in [from, to) by their sort keys with a merge sort.
+    private void sortByKey(int[] ids, int[] buffer, int from, int to, int category) {
+        if (to - from < INSERTION_SORT_THRESHOLD) {
+            for (int i = from + 1; i < to; i++) {
+                int id = ids[i];
+                long idKey = getKey(id, category);
+                int j = i - 1;
+                while (j >= from && getKey(ids[j], category) > idKey) {
+                    ids[j + 1] = ids[j];
+                    j--;
+                }
+                ids[j + 1] = id;
+            }
+            return;
+        }
+
+        int middle = (from + to) >>> 1;
+        sortByKey(ids, buffer, from, middle, category);
+        sortByKey(ids, buffer, middle, to, category);
+        if (getKey(ids[middle - 1], category) <= getKey(ids[middle], category)) {
+            return; // The halves are already in order.
+        }
+
+        System.arraycopy(ids, from, buffer, from, to - from);
+        int left = from;
+        int right = middle;
+        for (int i = from; i < to; i++) {
+            if (right >= to || (left < middle && getKey(buffer[left], category) <= getKey(buffer[right], category))) {
+                ids[i] = buffer[left++];
+            } else {
+                ids[i] = buffer[right++];
+            }
+        }
+    }
+
+    // Moves the k song IDs with the greatest sort keys for a category among the
+    // first count IDs of an array to its front, in no particular order, with a
+    // quickselect in expected linear time.
+    public void selectTop(int[] ids, int count, int k, int category) {
+        if (k <= 0 || k >= count) {
+            return;
+        }
+        int target = k - 1; // Index that must end up holding the k-th greatest key.
+        int from = 0;
+        int to = count - 1;
+        while (from < to) {
+            long pivot = medianKey(ids[from], ids[(from + to) >>> 1], ids[to], category);
+
+            // Partition into keys not smaller than the pivot followed by keys not
+            // greater than the pivot.
+            int i = from;
+            int j = to;
+            while (i <= j) {
+                while (getKey(ids[i], category) > pivot) {
+                    i++;
+                }
+                while (getKey(ids[j], category) < pivot) {
+                    j--;
+                }
+                if (i <= j) {
+                    int temp = ids[i];
+                    ids[i] = ids[j];
+                    ids[j] = temp;
+                    i++;
+                    j--;
+                }
+            }
+
+            // Continue in the part that contains the target index.
+            if (target <= j) {
+                to = j;
+            } else if (target >= i) {
+                from = i;
+            } else {
+                return;
+            }
+        }
+    }
+
+    // Returns the median of the sort keys of three songs for a category.
+    private long medianKey(int first, int second, int third, int category) {
+        long a = getKey(first, category);
+        long b = getKey(second, category);
+        long c = getKey(third, category);
+        return Math.max(Math.min(a, b), Math.min(Math.max(a, b), c));
+    }
+
+    // Getter methods for song attributes.
+    public int getNumberOfSongs() {
+        return numberOfSongs;
+    }
+
+    // Returns the external ID of a song, 0 for the ID 0.
+    public long getExternalId(int songId) {
+        return externalIds[songId];
+    }
+
+    // Returns the song ID of an external ID, 0 if no song has it.
+    public int getSongId(long externalId) {
+        return songIdsByExternalId.get(externalId, 0);
+    }
+
+    public int getPlayCount(int songId) {
+        return getScore(songId, 0);
+    }
+
+    // Returns the score of a song for a category, category 0 is the play count.
+    public int getScore(int songId, int category) {
+        return (int) (keys[songId * KEYS_PER_SONG + category] >> 32);
+    }
+
+    // Returns the sort key of a song for a category, category 0 is the play count.
+    public long getKey(int songId, int category) {
+        return keys[songId * KEYS_PER_SONG + category];
+    }
+
+    public int getPlaylistId(int songId) {
+        return playlistIds[songId];
+    }
+
+    public void setPlaylistId(int songId, int playlistId) {
+        playlistIds[songId] = playlistId;
+    }
+
+    public boolean getNotAdded(int songId, int index) {
+        return notAdded[songId * CATEGORIES + index];
+    }
+
+    // Sets the 'notAdded' flag of a song for a specific category index.
+    public void setNotAdded(int songId, int index, boolean value) {
+        notAdded[songId * CATEGORIES + index] = value;
+    }
+
+    // Resets the 'notAdded' flags of a song for all categories.
+    public void resetNotAdded(int songId) {
+        for (int index = 0; index < CATEGORIES; index++) {
+            notAdded[songId * CATEGORIES + index] = true;
+        }
+    }
+
+    // Returns the position of a song in its playlist's heap of a category, -1 if
+    // the song is not in the heap.
+    public int getHeapPosition(int songId, int category) {
+        return heapPositions[songId * CATEGORIES + category - 1] - 1;
+    }
+
+    // Sets the position of a song in its playlist's heap of a category, -1 if the
+    // song left the heap.
+    public void setHeapPosition(int songId, int category, int position) {
+        heapPositions[songId * CATEGORIES + category - 1] = position + 1;
+    }
+
+    // Returns the handle recorded for a song by the structures of a handle slot.
+    public int getNodeHandle(int songId, int slot) {
+        return nodeHandles[songId * HANDLE_SLOTS + slot];
+    }
+
+    // Records the handle of a song for the structures of a handle slot.
+    public void setNodeHandle(int songId, int slot, int node) {
+        nodeHandles[songId * HANDLE_SLOTS + slot] = node;
+    }
+
+    // Increments the blend category count of a song and returns the new count.
+    public int incrementBlendCount(int songId) {
+        return ++blendCounts[songId];
+    }
+
+    // Decrements the blend category count of a song and returns the new count.
+    public int decrementBlendCount(int songId) {
+        return --blendCounts[songId];
+    }
+
+    // Compares two songs based on the specified category. Songs with equal scores
+    // are ordered by name, the smaller name being the greater song.
+    public int compare(int songId, int otherId, int category) {
+        return Long.compare(getKey(songId, category), getKey(otherId, category));
+    }
+}
@@ -0,0 +1,70 @@
+// TournamentTree class
+/**
+ * Represents a tournament tree over all playlists for a specific category.
+ * Each leaf belongs to one playlist, indexed by playlist ID, and holds that playlist's
+ * best not-added song, or 0 when the playlist cannot contribute more songs.
+ * Every internal slot holds the better song of its two children, so the best replacement
+ * candidate across all playlists is always at the root.
+ * The tree is stored in a flat array, updating a leaf walks a single path to the root.
+ */
+public class TournamentTree {
+    private final int[] tree; // Flat array of song IDs, the root is at index 1.
+    private final int leafStart; // Index of the first leaf slot.
+    private final SongStore store; // Store used for comparing songs.
+    private final int category; // Category used for comparing songs.
+
+    // Constructor for initializing an empty tournament tree with the given number of leaves.
+    public TournamentTree(SongStore store, int category, int leafCount) {
+        this.store = store;
+        this.category = category;
+        int capacity = 1;
+        while (capacity < leafCount) {
+            capacity <<= 1;
+        }
+        this.leafStart = capacity;
+        this.tree = new int[2 * capacity];
+    }
+
+    // Returns the best song among all leaves, or 0 if every leaf is empty.
+    public int getMax() {
+        return tree[1];
+    }
+
+    // Sets a leaf without updating its ancestors, rebuild() must be called afterwards.
+    public void setLeaf(int index, int song) {
+        tree[leafStart + index] = song;
+    }
+
+    // Recomputes every internal slot from the leaves.
+    public void rebuild() {
+        for (int i = leafStart - 1; i >= 1; i--) {
+            tree[i] = better(tree[2 * i], tree[2 * i + 1]);
+        }
+    }
+
+    // Sets a leaf and updates the slots on its path to the root.
+    public void update(int index, int song) {
+        int i = leafStart + index;
+        tree[i] = song;
+        i >>= 1;
+        while (i >= 1) {
+            int winner = better(tree[2 * i], tree[2 * i + 1]);
+            if (tree[i] == winner) {
+                break; // Ancestors are already up to date.
+            }
+            tree[i] = winner;
+            i >>= 1;
+        }
+    }
+
+    // Returns the better of two songs, preferring the left one on ties.
+    private int better(int left, int right) {
+        if (right == 0) {
+            return left;
+        }
+        if (left == 0) {
+            return right;
+        }
+        return store.getKey(right, category) > store.getKey(left, category) ? right : left;
+    }
+}